@@ -1,19 +1,29 @@
 package com.henrique.dscatalog.config;
 
+import com.henrique.dscatalog.config.customgrant.BoundedPasswordVerifier;
+import com.henrique.dscatalog.config.customgrant.CachingJdbcOAuth2AuthorizationService;
 import com.henrique.dscatalog.config.customgrant.CustomPasswordAuthenticationConverter;
 import com.henrique.dscatalog.config.customgrant.CustomPasswordAuthenticationProvider;
 import com.henrique.dscatalog.config.customgrant.CustomUserAuthorities;
-import com.nimbusds.jose.jwk.JWKSet;
-import com.nimbusds.jose.jwk.RSAKey;
+import com.henrique.dscatalog.config.customgrant.LoginAttemptLimiter;
+import com.henrique.dscatalog.config.customgrant.TokenErrorResponseHandler;
+import com.henrique.dscatalog.config.jwk.JwkSetCacheControlFilter;
+import com.henrique.dscatalog.config.jwk.SigningKeys;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
 import com.nimbusds.jose.jwk.source.JWKSource;
 import com.nimbusds.jose.proc.SecurityContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.annotation.Order;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.jdbc.core.JdbcOperations;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -22,9 +32,7 @@ import org.springframework.security.oauth2.core.OAuth2Token;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
 import org.springframework.security.oauth2.server.authorization.InMemoryOAuth2AuthorizationConsentService;
-import org.springframework.security.oauth2.server.authorization.InMemoryOAuth2AuthorizationService;
 import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationConsentService;
-import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
 import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientAuthenticationToken;
 import org.springframework.security.oauth2.server.authorization.client.InMemoryRegisteredClientRepository;
 import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
@@ -37,18 +45,18 @@ import org.springframework.security.oauth2.server.authorization.settings.OAuth2T
 import org.springframework.security.oauth2.server.authorization.settings.TokenSettings;
 import org.springframework.security.oauth2.server.authorization.token.*;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.header.HeaderWriterFilter;
 
-import java.security.KeyPair;
-import java.security.KeyPairGenerator;
-import java.security.interfaces.RSAPrivateKey;
-import java.security.interfaces.RSAPublicKey;
 import java.time.Duration;
+import java.util.Arrays;
 import java.util.List;
-import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Configuration
 public class AuthorizationServerConfig {
 
+	private static final Logger logger = LoggerFactory.getLogger(AuthorizationServerConfig.class);
+
 	@Value("${security.client-id}")
 	private String clientId;
 
@@ -58,12 +66,75 @@ public class AuthorizationServerConfig {
 	@Value("${security.jwt.duration}")
 	private Integer jwtDurationSeconds;
 
+	@Value("${security.jwt.keys.keystore.location}")
+	private String jwtKeystoreLocation;
+
+	@Value("${security.jwt.keys.keystore.type}")
+	private String jwtKeystoreType;
+
+	@Value("${security.jwt.keys.keystore.password}")
+	private String jwtKeystorePassword;
+
+	@Value("${security.jwt.keys.keystore.aliases}")
+	private String[] jwtKeystoreAliases;
+
+	@Value("${security.jwt.keys.pem-locations}")
+	private String[] jwtPemLocations;
+
+	@Value("${security.jwt.keys.jwks-max-age-seconds}")
+	private Long jwksMaxAgeSeconds;
+
+	@Value("${security.jwt.stateless}")
+	private boolean jwtStateless;
+
+	@Value("${password-hashing.threads}")
+	private Integer passwordHashingThreads;
+
+	@Value("${password-hashing.queue-size}")
+	private Integer passwordHashingQueueSize;
+
+	@Value("${password-hashing.timeout-ms}")
+	private Long passwordHashingTimeoutMillis;
+
+	@Value("${login-attempts.max-per-ip}")
+	private Integer maxLoginAttemptsPerIp;
+
+	@Value("${login-attempts.max-failures-per-username}")
+	private Integer maxLoginFailuresPerUsername;
+
+	@Value("${login-attempts.window-seconds}")
+	private Long loginAttemptsWindowSeconds;
+
+	@Value("${login-attempts.max-keys}")
+	private Long loginAttemptsMaxKeys;
+
+	@Value("${authorization-store.batch-size}")
+	private Integer authorizationStoreBatchSize;
+
+	@Value("${authorization-store.sweep-batch-size}")
+	private Integer authorizationStoreSweepBatchSize;
+
+	@Value("${authorization-store.cache.max-size}")
+	private Long authorizationStoreCacheMaxSize;
+
+	@Value("${authorization-store.cache.ttl-seconds}")
+	private Long authorizationStoreCacheTtlSeconds;
+
 	@Autowired
 	private PasswordEncoder passwordEncoder;
 
+	@Autowired
+	private JdbcOperations jdbcOperations;
+
+	@Autowired
+	private ResourceLoader resourceLoader;
+
 	@Autowired
 	private UserDetailsService userDetailsService;
 
+	@Autowired
+	private UserDetailsPasswordService userDetailsPasswordService;
+
 	@Bean
 	@Order(2)
 	public SecurityFilterChain asSecurityFilterChain(HttpSecurity http) throws Exception {
@@ -74,17 +145,34 @@ public class AuthorizationServerConfig {
 		http.getConfigurer(OAuth2AuthorizationServerConfigurer.class)
 			.tokenEndpoint(tokenEndpoint -> tokenEndpoint
 				.accessTokenRequestConverter(new CustomPasswordAuthenticationConverter())
-				.authenticationProvider(new CustomPasswordAuthenticationProvider(authorizationService(), tokenGenerator(), userDetailsService, passwordEncoder)));
+				.authenticationProvider(new CustomPasswordAuthenticationProvider(authorizationService(), tokenGenerator(), userDetailsService, userDetailsPasswordService, passwordVerifier(), loginAttemptLimiter(), !jwtStateless))
+				.errorResponseHandler(new TokenErrorResponseHandler(loginAttemptLimiter().getWindow())));
 
 		http.oauth2ResourceServer(oauth2ResourceServer -> oauth2ResourceServer.jwt(Customizer.withDefaults()));
+		http.addFilterBefore(new JwkSetCacheControlFilter(authorizationServerSettings().getJwkSetEndpoint(),
+				Duration.ofSeconds(jwksMaxAgeSeconds)), HeaderWriterFilter.class);
 		// @formatter:on
 
 		return http.build();
 	}
 
 	@Bean
-	public OAuth2AuthorizationService authorizationService() {
-		return new InMemoryOAuth2AuthorizationService();
+	public BoundedPasswordVerifier passwordVerifier() {
+		int threads = passwordHashingThreads > 0 ? passwordHashingThreads : Runtime.getRuntime().availableProcessors();
+		return new BoundedPasswordVerifier(passwordEncoder, threads, passwordHashingQueueSize, passwordHashingTimeoutMillis);
+	}
+
+	@Bean
+	public LoginAttemptLimiter loginAttemptLimiter() {
+		return new LoginAttemptLimiter(maxLoginAttemptsPerIp, maxLoginFailuresPerUsername,
+				Duration.ofSeconds(loginAttemptsWindowSeconds), loginAttemptsMaxKeys);
+	}
+
+	@Bean
+	public CachingJdbcOAuth2AuthorizationService authorizationService() {
+		return new CachingJdbcOAuth2AuthorizationService(jdbcOperations, registeredClientRepository(),
+				authorizationStoreBatchSize, authorizationStoreSweepBatchSize, authorizationStoreCacheMaxSize,
+				Duration.ofSeconds(authorizationStoreCacheTtlSeconds));
 	}
 
 	@Bean
@@ -96,7 +184,7 @@ public class AuthorizationServerConfig {
 	public RegisteredClientRepository registeredClientRepository() {
 		// @formatter:off
 		RegisteredClient registeredClient = RegisteredClient
-			.withId(UUID.randomUUID().toString())
+			.withId(clientId)
 			.clientId(clientId)
 			.clientSecret(passwordEncoder.encode(clientSecret))
 			.scope("read")
@@ -144,7 +232,10 @@ public class AuthorizationServerConfig {
 		return context -> {
 			OAuth2ClientAuthenticationToken principal = context.getPrincipal();
 			CustomUserAuthorities user = (CustomUserAuthorities) principal.getDetails();
-			List<String> authorities = user.getAuthorities().stream().map(x -> x.getAuthority()).toList();
+			List<String> authorities = user.getAuthorities().stream().map(x -> x.getAuthority()).collect(Collectors.toList());
+			context.getJwsHeader()
+				.algorithm(signingKeys().getSigningAlgorithm())
+				.keyId(signingKeys().getSigningKeyId());
 			if (context.getTokenType().getValue().equals("access_token")) {
 				// @formatter:off
 				context.getClaims()
@@ -161,28 +252,20 @@ public class AuthorizationServerConfig {
 	}
 
 	@Bean
-	public JWKSource<SecurityContext> jwkSource() {
-		RSAKey rsaKey = generateRsa();
-		JWKSet jwkSet = new JWKSet(rsaKey);
-		return (jwkSelector, securityContext) -> jwkSelector.select(jwkSet);
-	}
-
-	private static RSAKey generateRsa() {
-		KeyPair keyPair = generateRsaKey();
-		RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
-		RSAPrivateKey privateKey = (RSAPrivateKey) keyPair.getPrivate();
-		return new RSAKey.Builder(publicKey).privateKey(privateKey).keyID(UUID.randomUUID().toString()).build();
+	public SigningKeys signingKeys() {
+		if (!jwtKeystoreLocation.isBlank()) {
+			return SigningKeys.fromKeyStore(resourceLoader.getResource(jwtKeystoreLocation), jwtKeystoreType,
+					jwtKeystorePassword, List.of(jwtKeystoreAliases));
+		}
+		if (jwtPemLocations.length > 0) {
+			return SigningKeys.fromPem(Arrays.stream(jwtPemLocations).map(resourceLoader::getResource).toList());
+		}
+		logger.warn("No JWT signing keys configured, generating a temporary RSA key: tokens will not validate on other nodes or after a restart");
+		return SigningKeys.generateRsa();
 	}
 
-	private static KeyPair generateRsaKey() {
-		KeyPair keyPair;
-		try {
-			KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
-			keyPairGenerator.initialize(2048);
-			keyPair = keyPairGenerator.generateKeyPair();
-		} catch (Exception ex) {
-			throw new IllegalStateException(ex);
-		}
-		return keyPair;
+	@Bean
+	public JWKSource<SecurityContext> jwkSource() {
+		return new ImmutableJWKSet<>(signingKeys().getJwkSet());
 	}
 }
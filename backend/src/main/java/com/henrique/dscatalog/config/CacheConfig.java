@@ -0,0 +1,91 @@
+package com.henrique.dscatalog.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.henrique.dscatalog.dto.ProductDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.function.UnaryOperator;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String PRODUCT_COUNTS = "productCounts";
+    public static final String PRODUCTS = "products";
+    public static final String USER_DETAILS = "userDetails";
+
+    @Value("${cache.product-counts.max-size}")
+    private Long productCountsMaxSize;
+
+    @Value("${cache.product-counts.ttl-seconds}")
+    private Long productCountsTtlSeconds;
+
+    @Value("${cache.products.max-size}")
+    private Long productsMaxSize;
+
+    @Value("${cache.products.ttl-seconds}")
+    private Long productsTtlSeconds;
+
+    @Value("${cache.user-details.max-size}")
+    private Long userDetailsMaxSize;
+
+    @Value("${cache.user-details.ttl-seconds}")
+    private Long userDetailsTtlSeconds;
+
+    @Bean
+    public CacheManager cacheManager() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager() {
+            @Override
+            protected org.springframework.cache.Cache adaptCaffeineCache(String name, Cache<Object, Object> cache) {
+                return PRODUCTS.equals(name)
+                        ? new CopyingCaffeineCache(name, cache, value -> new ProductDTO((ProductDTO) value))
+                        : super.adaptCaffeineCache(name, cache);
+            }
+        };
+        cacheManager.registerCustomCache(PRODUCT_COUNTS, Caffeine.newBuilder()
+                .maximumSize(productCountsMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(productCountsTtlSeconds))
+                .recordStats()
+                .build());
+        cacheManager.registerCustomCache(PRODUCTS, Caffeine.newBuilder()
+                .maximumSize(productsMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(productsTtlSeconds))
+                .recordStats()
+                .build());
+        cacheManager.registerCustomCache(USER_DETAILS, Caffeine.newBuilder()
+                .maximumSize(userDetailsMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(userDetailsTtlSeconds))
+                .recordStats()
+                .build());
+        return cacheManager;
+    }
+
+    // Callers get a mutable DTO, so hand each one its own copy instead of the shared cached instance
+    private static class CopyingCaffeineCache extends CaffeineCache {
+        private final UnaryOperator<Object> copier;
+
+        CopyingCaffeineCache(String name, Cache<Object, Object> cache, UnaryOperator<Object> copier) {
+            super(name, cache, false);
+            this.copier = copier;
+        }
+
+        @Override
+        protected Object toStoreValue(Object userValue) {
+            return super.toStoreValue(userValue == null ? null : copier.apply(userValue));
+        }
+
+        @Override
+        protected Object fromStoreValue(Object storeValue) {
+            Object value = super.fromStoreValue(storeValue);
+            return value == null ? null : copier.apply(value);
+        }
+    }
+}
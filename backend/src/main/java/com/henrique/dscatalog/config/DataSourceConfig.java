@@ -0,0 +1,136 @@
+package com.henrique.dscatalog.config;
+
+import com.henrique.dscatalog.config.datasource.ConcurrencyLimitingDataSource;
+import com.henrique.dscatalog.config.datasource.ReadReplicas;
+import com.henrique.dscatalog.config.datasource.ReadWriteRoutingDataSource;
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.jdbc.DataSourceUnwrapper;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    public static BeanPostProcessor dataSourcePostProcessor(Environment env, ObjectProvider<ReadReplicas> readReplicas) {
+        int limit = env.getRequiredProperty("datasource.concurrency-limit", Integer.class);
+        long acquireTimeoutMillis = env.getRequiredProperty("datasource.acquire-timeout-ms", Long.class);
+        long stickyMillis = env.getRequiredProperty("datasource.replicas.sticky-ms", Long.class);
+
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource)
+                        || bean instanceof ConcurrencyLimitingDataSource || bean instanceof ReadWriteRoutingDataSource) {
+                    return bean;
+                }
+
+                DataSource primary = limit > 0
+                        ? new ConcurrencyLimitingDataSource(dataSource, limit, acquireTimeoutMillis)
+                        : dataSource;
+                ReadReplicas replicas = readReplicas.getIfAvailable();
+                return replicas == null
+                        ? primary
+                        : new ReadWriteRoutingDataSource(primary, replicas, DataSourceConfig::currentPrincipal, stickyMillis);
+            }
+        };
+    }
+
+    // Replica pools are not DataSource beans, otherwise Spring Boot would stop configuring the primary.
+    // They take the same spring.datasource.hikari.* tuning and report the same pool metrics.
+    @Bean
+    @ConditionalOnExpression("!'${datasource.replicas.urls}'.isBlank()")
+    public ReadReplicas readReplicas(
+            Environment env,
+            ObjectProvider<MeterRegistry> meterRegistry,
+            @Value("${datasource.replicas.urls}") List<String> urls,
+            @Value("${datasource.replicas.username}") String username,
+            @Value("${datasource.replicas.password}") String password,
+            @Value("${datasource.replicas.selection}") ReadReplicas.Selection selection,
+            @Value("${datasource.replicas.max-lag-ms}") long maxLagMillis,
+            @Value("${datasource.replicas.lag-query}") String lagQuery,
+            @Value("${datasource.concurrency-limit}") int limit,
+            @Value("${datasource.acquire-timeout-ms}") long acquireTimeoutMillis) {
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        List<DataSource> dataSources = new ArrayList<>();
+        for (String url : urls) {
+            HikariDataSource replica = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .build();
+            Binder.get(env).bind("spring.datasource.hikari", Bindable.ofInstance(replica));
+            replica.setJdbcUrl(url.trim());
+            replica.setUsername(username);
+            replica.setPassword(password);
+            replica.setPoolName("replica-" + dataSources.size());
+            replica.setReadOnly(true);
+            if (registry != null) {
+                replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+            }
+
+            if (limit > 0) {
+                ConcurrencyLimitingDataSource limited = new ConcurrencyLimitingDataSource(replica, limit, acquireTimeoutMillis);
+                if (registry != null) {
+                    bindConcurrencyLimitMetrics(registry, limited, replica.getPoolName());
+                }
+                dataSources.add(limited);
+            }
+            else {
+                dataSources.add(replica);
+            }
+        }
+        return new ReadReplicas(dataSources, selection, maxLagMillis, lagQuery);
+    }
+
+    // Requests waiting on the concurrency limit never reach Hikari, so its pending gauge misses them
+    @Bean
+    public MeterBinder concurrencyLimitMetrics(ObjectProvider<DataSource> dataSource) {
+        return registry -> dataSource.ifAvailable(primary -> {
+            ConcurrencyLimitingDataSource limited = DataSourceUnwrapper.unwrap(primary, ConcurrencyLimitingDataSource.class);
+            HikariDataSource pool = DataSourceUnwrapper.unwrap(primary, HikariConfigMXBean.class, HikariDataSource.class);
+            if (limited != null) {
+                bindConcurrencyLimitMetrics(registry, limited, pool == null ? "primary" : pool.getPoolName());
+            }
+        });
+    }
+
+    private static void bindConcurrencyLimitMetrics(MeterRegistry registry, ConcurrencyLimitingDataSource dataSource, String pool) {
+        Gauge.builder("datasource.concurrency.available", dataSource, ConcurrencyLimitingDataSource::getAvailablePermits)
+                .description("Connections that can still be taken before callers start to wait")
+                .tag("pool", pool)
+                .register(registry);
+        Gauge.builder("datasource.concurrency.waiting", dataSource, ConcurrencyLimitingDataSource::getQueueLength)
+                .description("Callers waiting for the concurrency limit")
+                .tag("pool", pool)
+                .register(registry);
+    }
+
+    // Read-your-writes is tracked per authenticated user; anonymous reads never stick to the primary
+    private static String currentPrincipal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken
+                || !authentication.isAuthenticated()) {
+            return null;
+        }
+        return authentication.getName();
+    }
+}
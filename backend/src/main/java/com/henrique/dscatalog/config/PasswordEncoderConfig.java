@@ -1,14 +1,50 @@
 package com.henrique.dscatalog.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.scrypt.SCryptPasswordEncoder;
+
+import java.util.HashMap;
+import java.util.Map;
 
 @Configuration
 public class PasswordEncoderConfig {
+
+    public static final String BCRYPT = "bcrypt";
+    public static final String ARGON2 = "argon2";
+    public static final String SCRYPT = "scrypt";
+
+    @Value("${password-encoder.id}")
+    private String idForEncode;
+
+    @Value("${password-encoder.bcrypt.strength}")
+    private Integer bcryptStrength;
+
+    @Value("${password-encoder.argon2.memory-kib}")
+    private Integer argon2MemoryKib;
+
+    @Value("${password-encoder.argon2.iterations}")
+    private Integer argon2Iterations;
+
     @Bean
     public PasswordEncoder passwordEncoder(){
-        return new BCryptPasswordEncoder();
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put(BCRYPT, new BCryptPasswordEncoder(bcryptStrength));
+        encoders.put(ARGON2, argon2(argon2MemoryKib, argon2Iterations));
+        encoders.put(SCRYPT, SCryptPasswordEncoder.defaultsForSpringSecurity_v5_8());
+
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(idForEncode, encoders);
+        // Hashes stored before the {id} prefix existed are plain bcrypt; they match and get upgraded on login
+        encoder.setDefaultPasswordEncoderForMatches(encoders.get(BCRYPT));
+        return encoder;
+    }
+
+    public static Argon2PasswordEncoder argon2(int memoryKib, int iterations) {
+        return new Argon2PasswordEncoder(16, 32, 1, memoryKib, iterations);
     }
 }
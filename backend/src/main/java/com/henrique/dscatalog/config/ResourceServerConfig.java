@@ -1,6 +1,10 @@
 package com.henrique.dscatalog.config;
 
+import com.henrique.dscatalog.config.jwk.CachingJwtAuthenticationManager;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.boot.autoconfigure.security.servlet.PathRequest;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
@@ -8,11 +12,12 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
-import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationProvider;
 import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.web.cors.CorsConfiguration;
@@ -20,6 +25,7 @@ import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.springframework.web.filter.CorsFilter;
 
+import java.time.Duration;
 import java.util.Arrays;
 
 @Configuration
@@ -30,6 +36,12 @@ public class ResourceServerConfig {
 	@Value("${cors.origins}")
 	private String corsOrigins;
 
+	@Value("${cache.jwt-authentications.max-size}")
+	private Long jwtCacheMaxSize;
+
+	@Value("${cache.jwt-authentications.max-ttl-seconds}")
+	private Long jwtCacheMaxTtlSeconds;
+
 	@Bean
 	@Profile("test")
 	@Order(1)
@@ -42,11 +54,20 @@ public class ResourceServerConfig {
 
 	@Bean
 	@Order(3)
-	public SecurityFilterChain rsSecurityFilterChain(HttpSecurity http) throws Exception {
+	public SecurityFilterChain rsSecurityFilterChain(HttpSecurity http, JwtDecoder jwtDecoder, MeterRegistry meterRegistry) throws Exception {
+
+		JwtAuthenticationProvider jwtAuthenticationProvider = new JwtAuthenticationProvider(jwtDecoder);
+		jwtAuthenticationProvider.setJwtAuthenticationConverter(jwtAuthenticationConverter());
+		CachingJwtAuthenticationManager jwtAuthenticationManager = new CachingJwtAuthenticationManager(
+				jwtAuthenticationProvider, jwtCacheMaxSize, Duration.ofSeconds(jwtCacheMaxTtlSeconds));
+		CaffeineCacheMetrics.monitor(meterRegistry, jwtAuthenticationManager.getCache(), "jwtAuthentications");
 
 		http.csrf(csrf -> csrf.disable());
-		http.authorizeHttpRequests(authorize -> authorize.anyRequest().permitAll());
-		http.oauth2ResourceServer(oauth2ResourceServer -> oauth2ResourceServer.jwt(Customizer.withDefaults()));
+		http.authorizeHttpRequests(authorize -> authorize
+				.requestMatchers(EndpointRequest.toAnyEndpoint().excluding("health")).hasRole("ADMIN")
+				.anyRequest().permitAll());
+		http.oauth2ResourceServer(oauth2ResourceServer -> oauth2ResourceServer
+				.jwt(jwt -> jwt.authenticationManager(jwtAuthenticationManager)));
 		http.cors(cors -> cors.configurationSource(corsConfigurationSource()));
 		return http.build();
 	}
@@ -0,0 +1,61 @@
+package com.henrique.dscatalog.config;
+
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs StreamingResponseBody downloads. A download is submitted from its request thread, so a
+ * request marked with {@link #EXPORT_ATTRIBUTE} goes to the export pool and everything else to
+ * the connection executor. Connection tasks are admitted by a semaphore, so with virtual threads
+ * the limit is the number of open downloads rather than a pool size.
+ */
+public class StreamingTaskExecutor implements AsyncTaskExecutor {
+
+    public static final String EXPORT_ATTRIBUTE = StreamingTaskExecutor.class.getName() + ".EXPORT";
+
+    private final AsyncTaskExecutor connectionExecutor;
+    private final AsyncTaskExecutor exportExecutor;
+    private final Semaphore connections;
+
+    StreamingTaskExecutor(AsyncTaskExecutor connectionExecutor, AsyncTaskExecutor exportExecutor, int maxConnections) {
+        this.connectionExecutor = connectionExecutor;
+        this.exportExecutor = exportExecutor;
+        this.connections = new Semaphore(maxConnections);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (isExport()) {
+            exportExecutor.execute(task);
+            return;
+        }
+
+        if (!connections.tryAcquire()) {
+            throw new TaskRejectedException("Streaming connection limit reached");
+        }
+        try {
+            connectionExecutor.execute(() -> {
+                try {
+                    task.run();
+                }
+                finally {
+                    connections.release();
+                }
+            });
+        }
+        catch (RuntimeException e) {
+            connections.release();
+            throw e;
+        }
+    }
+
+    private boolean isExport() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes != null
+                && attributes.getAttribute(EXPORT_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) != null;
+    }
+}
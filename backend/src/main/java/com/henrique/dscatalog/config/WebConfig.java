@@ -0,0 +1,71 @@
+package com.henrique.dscatalog.config;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * StreamingResponseBody downloads hold a thread for their whole duration, and Boot's shared
+ * applicationTaskExecutor would queue the extras without limit. /products/stream only holds a
+ * connection while it reads a chunk, so with virtual threads it gets one per download, up to
+ * streaming.max-connections; on platform threads it gets a pool of streaming.threads.
+ * /products/export holds a database cursor throughout, so it has a small pool of its own.
+ * Either way a download over the limit is rejected with 503. The executors are not beans,
+ * otherwise Boot would stop creating applicationTaskExecutor.
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer, DisposableBean {
+
+    private final ThreadPoolTaskExecutor exportExecutor = new ThreadPoolTaskExecutor();
+    private final AsyncTaskExecutor connectionExecutor;
+    private final StreamingTaskExecutor streamingExecutor;
+
+    public WebConfig(Environment environment,
+                     @Value("${streaming.max-connections}") int maxConnections,
+                     @Value("${streaming.threads}") int threads,
+                     @Value("${streaming.export-threads}") int exportThreads,
+                     @Value("${streaming.export-queue-capacity}") int exportQueueCapacity) {
+        exportExecutor.setCorePoolSize(exportThreads);
+        exportExecutor.setMaxPoolSize(exportThreads);
+        exportExecutor.setQueueCapacity(exportQueueCapacity);
+        exportExecutor.setThreadNamePrefix("export-");
+        exportExecutor.initialize();
+
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor virtualExecutor = new SimpleAsyncTaskExecutor("streaming-");
+            virtualExecutor.setVirtualThreads(true);
+            connectionExecutor = virtualExecutor;
+            streamingExecutor = new StreamingTaskExecutor(virtualExecutor, exportExecutor, maxConnections);
+        }
+        else {
+            ThreadPoolTaskExecutor platformExecutor = new ThreadPoolTaskExecutor();
+            platformExecutor.setCorePoolSize(threads);
+            platformExecutor.setMaxPoolSize(threads);
+            platformExecutor.setQueueCapacity(0);
+            platformExecutor.setThreadNamePrefix("streaming-");
+            platformExecutor.initialize();
+            connectionExecutor = platformExecutor;
+            streamingExecutor = new StreamingTaskExecutor(platformExecutor, exportExecutor, threads);
+        }
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(streamingExecutor);
+    }
+
+    @Override
+    public void destroy() {
+        if (connectionExecutor instanceof ThreadPoolTaskExecutor platformExecutor) {
+            platformExecutor.shutdown();
+        }
+        exportExecutor.shutdown();
+    }
+}
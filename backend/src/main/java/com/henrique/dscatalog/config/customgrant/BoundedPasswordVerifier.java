@@ -0,0 +1,93 @@
+package com.henrique.dscatalog.config.customgrant;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs password hash checks on a fixed pool sized to the CPU, with a bounded queue. When the pool is
+ * saturated the check is refused straight away instead of tying up another request thread hashing.
+ */
+public class BoundedPasswordVerifier implements DisposableBean {
+
+	private final PasswordEncoder passwordEncoder;
+	private final ThreadPoolExecutor executor;
+	private final long timeoutMillis;
+
+	public BoundedPasswordVerifier(PasswordEncoder passwordEncoder, int threads, int queueSize, long timeoutMillis) {
+		this.passwordEncoder = passwordEncoder;
+		this.timeoutMillis = timeoutMillis;
+
+		AtomicInteger count = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueSize),
+				runnable -> {
+					Thread thread = new Thread(runnable, "password-hashing-" + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				},
+				new ThreadPoolExecutor.AbortPolicy());
+	}
+
+	public boolean matches(CharSequence rawPassword, String encodedPassword) {
+		return run(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+	}
+
+	public String encode(CharSequence rawPassword) {
+		return run(() -> passwordEncoder.encode(rawPassword));
+	}
+
+	public boolean upgradeEncoding(String encodedPassword) {
+		return passwordEncoder.upgradeEncoding(encodedPassword);
+	}
+
+	private <T> T run(Callable<T> task) {
+		Future<T> result;
+		try {
+			result = executor.submit(task);
+		} catch (RejectedExecutionException e) {
+			throw unavailable();
+		}
+
+		try {
+			return result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			result.cancel(true);
+			throw unavailable();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw unavailable();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException runtimeException) {
+				throw runtimeException;
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	public ThreadPoolExecutor getExecutor() {
+		return executor;
+	}
+
+	@Override
+	public void destroy() {
+		executor.shutdownNow();
+	}
+
+	private static OAuth2AuthenticationException unavailable() {
+		return new OAuth2AuthenticationException(new OAuth2Error(OAuth2ErrorCodes.TEMPORARILY_UNAVAILABLE,
+				"Too many logins in progress, try again shortly", null));
+	}
+}
@@ -0,0 +1,293 @@
+package com.henrique.dscatalog.config.customgrant;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.SqlParameterValue;
+import org.springframework.jdbc.core.StatementCreatorUtils;
+import org.springframework.jdbc.support.lob.DefaultLobHandler;
+import org.springframework.jdbc.support.lob.LobCreator;
+import org.springframework.jdbc.support.lob.LobHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2DeviceCode;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.core.OAuth2Token;
+import org.springframework.security.oauth2.core.OAuth2UserCode;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.security.oauth2.core.oidc.OidcIdToken;
+import org.springframework.security.oauth2.core.oidc.endpoint.OidcParameterNames;
+import org.springframework.security.oauth2.server.authorization.JdbcOAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationCode;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * JDBC authorization store shared by all nodes. New authorizations are queued and inserted in batches
+ * every {@code authorization-store.flush-ms} (or as soon as a batch fills up); updates and removals go
+ * straight to the table. Reads are served from a bounded local cache first, and expired rows are purged
+ * by a scheduled sweep.
+ * <p>
+ * A removal only invalidates this node's cache, so on other nodes a revoked token keeps resolving
+ * until its cached entry expires: {@code authorization-store.cache.ttl-seconds} is that revocation delay.
+ */
+public class CachingJdbcOAuth2AuthorizationService implements OAuth2AuthorizationService, DisposableBean {
+
+	private static final Logger logger = LoggerFactory.getLogger(CachingJdbcOAuth2AuthorizationService.class);
+
+	private static final String INSERT_SQL = "INSERT INTO oauth2_authorization (id, registered_client_id, "
+			+ "principal_name, authorization_grant_type, authorized_scopes, attributes, state, "
+			+ "authorization_code_value, authorization_code_issued_at, authorization_code_expires_at, "
+			+ "authorization_code_metadata, access_token_value, access_token_issued_at, access_token_expires_at, "
+			+ "access_token_metadata, access_token_type, access_token_scopes, oidc_id_token_value, "
+			+ "oidc_id_token_issued_at, oidc_id_token_expires_at, oidc_id_token_metadata, refresh_token_value, "
+			+ "refresh_token_issued_at, refresh_token_expires_at, refresh_token_metadata, user_code_value, "
+			+ "user_code_issued_at, user_code_expires_at, user_code_metadata, device_code_value, "
+			+ "device_code_issued_at, device_code_expires_at, device_code_metadata) "
+			+ "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+	private static final String PURGE_EXPIRED_SQL = """
+			DELETE FROM oauth2_authorization WHERE id IN (
+				SELECT id FROM oauth2_authorization
+				WHERE COALESCE(access_token_expires_at, refresh_token_expires_at, authorization_code_expires_at, device_code_expires_at) IS NOT NULL
+				AND (access_token_expires_at IS NULL OR access_token_expires_at < ?)
+				AND (refresh_token_expires_at IS NULL OR refresh_token_expires_at < ?)
+				AND (authorization_code_expires_at IS NULL OR authorization_code_expires_at < ?)
+				AND (device_code_expires_at IS NULL OR device_code_expires_at < ?)
+				LIMIT ?)
+			""";
+
+	private static final Map<String, Class<? extends OAuth2Token>> TOKEN_CLASSES = Map.of(
+			OAuth2ParameterNames.CODE, OAuth2AuthorizationCode.class,
+			OAuth2TokenType.ACCESS_TOKEN.getValue(), OAuth2AccessToken.class,
+			OAuth2TokenType.REFRESH_TOKEN.getValue(), OAuth2RefreshToken.class,
+			OidcParameterNames.ID_TOKEN, OidcIdToken.class,
+			OAuth2ParameterNames.USER_CODE, OAuth2UserCode.class,
+			OAuth2ParameterNames.DEVICE_CODE, OAuth2DeviceCode.class);
+
+	private final JdbcOAuth2AuthorizationService delegate;
+	private final JdbcOperations jdbcOperations;
+	private final LobHandler lobHandler = new DefaultLobHandler();
+	private final JdbcOAuth2AuthorizationService.OAuth2AuthorizationParametersMapper parametersMapper =
+			new JdbcOAuth2AuthorizationService.OAuth2AuthorizationParametersMapper();
+	private final Cache<String, OAuth2Authorization> authorizationsById;
+	private final Cache<String, String> idsByToken;
+	private final Map<String, OAuth2Authorization> pendingInserts = new ConcurrentHashMap<>();
+	private final ReentrantLock flushLock = new ReentrantLock();
+	private final int batchSize;
+	private final int sweepBatchSize;
+
+	public CachingJdbcOAuth2AuthorizationService(JdbcOperations jdbcOperations,
+			RegisteredClientRepository registeredClientRepository, int batchSize, int sweepBatchSize,
+			long cacheMaxSize, Duration cacheTtl) {
+		this.delegate = new JdbcOAuth2AuthorizationService(jdbcOperations, registeredClientRepository, lobHandler);
+		this.jdbcOperations = jdbcOperations;
+		this.batchSize = batchSize;
+		this.sweepBatchSize = sweepBatchSize;
+		this.authorizationsById = Caffeine.newBuilder().maximumSize(cacheMaxSize).expireAfterWrite(cacheTtl).build();
+		this.idsByToken = Caffeine.newBuilder().maximumSize(cacheMaxSize).expireAfterWrite(cacheTtl).build();
+	}
+
+	@Override
+	public void save(OAuth2Authorization authorization) {
+		String id = authorization.getId();
+		if (pendingInserts.computeIfPresent(id, (key, pending) -> authorization) == null) {
+			if (authorizationsById.getIfPresent(id) != null) {
+				delegate.save(authorization);
+			} else {
+				pendingInserts.put(id, authorization);
+			}
+		}
+		cache(authorization);
+
+		if (pendingInserts.size() >= batchSize) {
+			flush();
+		}
+	}
+
+	@Override
+	public void remove(OAuth2Authorization authorization) {
+		pendingInserts.remove(authorization.getId());
+		authorizationsById.invalidate(authorization.getId());
+		delegate.remove(authorization);
+	}
+
+	@Override
+	public OAuth2Authorization findById(String id) {
+		OAuth2Authorization authorization = authorizationsById.getIfPresent(id);
+		if (authorization == null) {
+			authorization = pendingInserts.get(id);
+		}
+		if (authorization == null) {
+			authorization = delegate.findById(id);
+			if (authorization != null) {
+				cache(authorization);
+			}
+		}
+		return authorization;
+	}
+
+	@Override
+	public OAuth2Authorization findByToken(String token, OAuth2TokenType tokenType) {
+		String id = idsByToken.getIfPresent(token);
+		if (id != null) {
+			OAuth2Authorization authorization = authorizationsById.getIfPresent(id);
+			if (authorization == null) {
+				authorization = pendingInserts.get(id);
+			}
+			if (authorization != null && hasToken(authorization, token, tokenType)) {
+				return authorization;
+			}
+		}
+		for (OAuth2Authorization pending : pendingInserts.values()) {
+			if (hasToken(pending, token, tokenType)) {
+				return pending;
+			}
+		}
+		OAuth2Authorization authorization = delegate.findByToken(token, tokenType);
+		if (authorization != null) {
+			cache(authorization);
+		}
+		return authorization;
+	}
+
+	// A tick that finds a flush already running has nothing left to do once that flush returns
+	@Scheduled(fixedDelayString = "${authorization-store.flush-ms}")
+	public void flushPending() {
+		if (!flushLock.tryLock()) {
+			return;
+		}
+		try {
+			drainPendingInserts();
+		} finally {
+			flushLock.unlock();
+		}
+	}
+
+	// Callers rely on the rows being stored when this returns, so it waits for a running flush
+	public void flush() {
+		flushLock.lock();
+		try {
+			drainPendingInserts();
+		} finally {
+			flushLock.unlock();
+		}
+	}
+
+	@Scheduled(fixedDelayString = "${authorization-store.sweep-ms}")
+	public int purgeExpired() {
+		Timestamp now = Timestamp.from(Instant.now());
+		int total = 0;
+		int deleted;
+		do {
+			deleted = jdbcOperations.update(PURGE_EXPIRED_SQL, now, now, now, now, sweepBatchSize);
+			total += deleted;
+		} while (deleted >= sweepBatchSize);
+
+		if (total > 0) {
+			logger.info("Purged {} expired authorizations", total);
+		}
+		return total;
+	}
+
+	@Override
+	public void destroy() {
+		flush();
+	}
+
+	private void drainPendingInserts() {
+		while (!pendingInserts.isEmpty()) {
+			List<OAuth2Authorization> batch = pendingInserts.values().stream().limit(batchSize).toList();
+			insert(batch);
+			batch.forEach(authorization -> pendingInserts.remove(authorization.getId(), authorization));
+		}
+	}
+
+	private void insert(List<OAuth2Authorization> batch) {
+		List<List<SqlParameterValue>> rows = batch.stream().map(parametersMapper).toList();
+		try (LobCreator lobCreator = lobHandler.getLobCreator()) {
+			jdbcOperations.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+				@Override
+				public void setValues(PreparedStatement ps, int i) throws SQLException {
+					setParameters(ps, lobCreator, rows.get(i));
+				}
+
+				@Override
+				public int getBatchSize() {
+					return rows.size();
+				}
+			});
+		} catch (DataAccessException e) {
+			// Some row was already stored (e.g. saved again after leaving the cache): fall back to upserts
+			for (OAuth2Authorization authorization : batch) {
+				try {
+					delegate.save(authorization);
+				} catch (DataAccessException rowException) {
+					logger.error("Could not store authorization {}: {}", authorization.getId(), rowException.getMessage());
+				}
+			}
+		}
+	}
+
+	private static void setParameters(PreparedStatement ps, LobCreator lobCreator, List<SqlParameterValue> parameters)
+			throws SQLException {
+		for (int i = 0; i < parameters.size(); i++) {
+			SqlParameterValue parameter = parameters.get(i);
+			if (parameter.getSqlType() == Types.BLOB) {
+				lobCreator.setBlobAsBytes(ps, i + 1, (byte[]) parameter.getValue());
+			} else {
+				StatementCreatorUtils.setParameterValue(ps, i + 1, parameter, parameter.getValue());
+			}
+		}
+	}
+
+	private void cache(OAuth2Authorization authorization) {
+		authorizationsById.put(authorization.getId(), authorization);
+		String state = authorization.getAttribute(OAuth2ParameterNames.STATE);
+		if (state != null) {
+			idsByToken.put(state, authorization.getId());
+		}
+		for (Class<? extends OAuth2Token> tokenClass : TOKEN_CLASSES.values()) {
+			OAuth2Authorization.Token<? extends OAuth2Token> token = authorization.getToken(tokenClass);
+			if (token != null) {
+				idsByToken.put(token.getToken().getTokenValue(), authorization.getId());
+			}
+		}
+	}
+
+	private static boolean hasToken(OAuth2Authorization authorization, String token, OAuth2TokenType tokenType) {
+		if (tokenType == null) {
+			return token.equals(authorization.getAttribute(OAuth2ParameterNames.STATE))
+					|| TOKEN_CLASSES.values().stream().anyMatch(tokenClass -> hasToken(authorization, token, tokenClass));
+		}
+		if (OAuth2ParameterNames.STATE.equals(tokenType.getValue())) {
+			return token.equals(authorization.getAttribute(OAuth2ParameterNames.STATE));
+		}
+		Class<? extends OAuth2Token> tokenClass = TOKEN_CLASSES.get(tokenType.getValue());
+		return tokenClass != null && hasToken(authorization, token, tokenClass);
+	}
+
+	private static boolean hasToken(OAuth2Authorization authorization, String token, Class<? extends OAuth2Token> tokenClass) {
+		OAuth2Authorization.Token<? extends OAuth2Token> authorizationToken = authorization.getToken(tokenClass);
+		return authorizationToken != null && Objects.equals(authorizationToken.getToken().getTokenValue(), token);
+	}
+}
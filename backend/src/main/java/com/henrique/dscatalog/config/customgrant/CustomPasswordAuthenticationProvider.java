@@ -1,13 +1,17 @@
 package com.henrique.dscatalog.config.customgrant;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.oauth2.core.*;
 import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
 import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
@@ -19,36 +23,45 @@ import org.springframework.security.oauth2.server.authorization.context.Authoriz
 import org.springframework.security.oauth2.server.authorization.token.DefaultOAuth2TokenContext;
 import org.springframework.security.oauth2.server.authorization.token.OAuth2TokenContext;
 import org.springframework.security.oauth2.server.authorization.token.OAuth2TokenGenerator;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
 import org.springframework.util.Assert;
 
 import java.security.Principal;
-import java.util.HashSet;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 public class CustomPasswordAuthenticationProvider implements AuthenticationProvider {
 
+	private static final Logger logger = LoggerFactory.getLogger(CustomPasswordAuthenticationProvider.class);
+
 	private static final String ERROR_URI = "https://datatracker.ietf.org/doc/html/rfc6749#section-5.2";
 	private final OAuth2AuthorizationService authorizationService;
 	private final UserDetailsService userDetailsService;
+	private final UserDetailsPasswordService userDetailsPasswordService;
 	private final OAuth2TokenGenerator<? extends OAuth2Token> tokenGenerator;
-	private final PasswordEncoder passwordEncoder;
-	private String username = "";
-	private String password = "";
-	private Set<String> authorizedScopes = new HashSet<>();
+	private final BoundedPasswordVerifier passwordVerifier;
+	private final LoginAttemptLimiter loginAttemptLimiter;
+	private final boolean storeAuthorizations;
 
 	public CustomPasswordAuthenticationProvider(OAuth2AuthorizationService authorizationService,
 			OAuth2TokenGenerator<? extends OAuth2Token> tokenGenerator, 
-			UserDetailsService userDetailsService, PasswordEncoder passwordEncoder) {
+			UserDetailsService userDetailsService, UserDetailsPasswordService userDetailsPasswordService,
+			BoundedPasswordVerifier passwordVerifier,
+			LoginAttemptLimiter loginAttemptLimiter, boolean storeAuthorizations) {
 		
 		Assert.notNull(authorizationService, "authorizationService cannot be null");
 		Assert.notNull(tokenGenerator, "TokenGenerator cannot be null");
 		Assert.notNull(userDetailsService, "UserDetailsService cannot be null");
-		Assert.notNull(passwordEncoder, "PasswordEncoder cannot be null");
+		Assert.notNull(userDetailsPasswordService, "UserDetailsPasswordService cannot be null");
+		Assert.notNull(passwordVerifier, "PasswordVerifier cannot be null");
+		Assert.notNull(loginAttemptLimiter, "LoginAttemptLimiter cannot be null");
 		this.authorizationService = authorizationService;
 		this.tokenGenerator = tokenGenerator;
 		this.userDetailsService = userDetailsService;
-		this.passwordEncoder = passwordEncoder;
+		this.userDetailsPasswordService = userDetailsPasswordService;
+		this.passwordVerifier = passwordVerifier;
+		this.loginAttemptLimiter = loginAttemptLimiter;
+		this.storeAuthorizations = storeAuthorizations;
 	}
 	
 	@Override
@@ -57,21 +70,27 @@ public class CustomPasswordAuthenticationProvider implements AuthenticationProvi
 		CustomPasswordAuthenticationToken customPasswordAuthenticationToken = (CustomPasswordAuthenticationToken) authentication;
 		OAuth2ClientAuthenticationToken clientPrincipal = getAuthenticatedClientElseThrowInvalidClient(customPasswordAuthenticationToken);
 		RegisteredClient registeredClient = clientPrincipal.getRegisteredClient();
-		username = customPasswordAuthenticationToken.getUsername();
-		password = customPasswordAuthenticationToken.getPassword();	
+		String username = customPasswordAuthenticationToken.getUsername();
+		String password = customPasswordAuthenticationToken.getPassword();
+		
+		loginAttemptLimiter.checkAttempt(username, getRemoteAddress(customPasswordAuthenticationToken));
 		
 		UserDetails user = null;
 		try {
 			user = userDetailsService.loadUserByUsername(username);
 		} catch (UsernameNotFoundException e) {
+			loginAttemptLimiter.recordFailure(username);
 			throw new OAuth2AuthenticationException("Invalid credentials");
 		}
 				
-		if (!passwordEncoder.matches(password, user.getPassword()) || !user.getUsername().equals(username)) {
+		if (!passwordVerifier.matches(password, user.getPassword()) || !user.getUsername().equals(username)) {
+			loginAttemptLimiter.recordFailure(username);
 			throw new OAuth2AuthenticationException("Invalid credentials");
 		}
+		loginAttemptLimiter.recordSuccess(username);
+		upgradeEncodingIfNeeded(user, password);
 		
-		authorizedScopes = user.getAuthorities().stream()
+		Set<String> authorizedScopes = user.getAuthorities().stream()
 				.map(scope -> scope.getAuthority())
 				.filter(scope -> registeredClient.getScopes().contains(scope))
 				.collect(Collectors.toSet());
@@ -94,12 +113,6 @@ public class CustomPasswordAuthenticationProvider implements AuthenticationProvi
 				.authorizationGrantType(new AuthorizationGrantType("password"))
 				.authorizationGrant(customPasswordAuthenticationToken);
 		
-		OAuth2Authorization.Builder authorizationBuilder = OAuth2Authorization.withRegisteredClient(registeredClient)
-				.attribute(Principal.class.getName(), clientPrincipal)
-				.principalName(clientPrincipal.getName())
-				.authorizationGrantType(new AuthorizationGrantType("password"))
-				.authorizedScopes(authorizedScopes);
-		
 		//-----------ACCESS TOKEN----------
 		OAuth2TokenContext tokenContext = tokenContextBuilder.tokenType(OAuth2TokenType.ACCESS_TOKEN).build();
 		OAuth2Token generatedAccessToken = this.tokenGenerator.generate(tokenContext);
@@ -112,15 +125,28 @@ public class CustomPasswordAuthenticationProvider implements AuthenticationProvi
 		OAuth2AccessToken accessToken = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER,
 				generatedAccessToken.getTokenValue(), generatedAccessToken.getIssuedAt(),
 				generatedAccessToken.getExpiresAt(), tokenContext.getAuthorizedScopes());
-		if (generatedAccessToken instanceof ClaimAccessor) {
-			authorizationBuilder.token(accessToken, (metadata) ->
-					metadata.put(OAuth2Authorization.Token.CLAIMS_METADATA_NAME, ((ClaimAccessor) generatedAccessToken).getClaims()));
-		} else {
-			authorizationBuilder.accessToken(accessToken);
+		
+		//-----------AUTHORIZATION----------
+		// Self-contained tokens are verified by signature alone; only store them when stateless issuance is off
+		if (storeAuthorizations || !(generatedAccessToken instanceof ClaimAccessor)) {
+			// Stored with the authorization, so it must be a type the JDBC store can serialize
+			Authentication userPrincipal = UsernamePasswordAuthenticationToken.authenticated(username, null,
+					user.getAuthorities().stream().map(authority -> new SimpleGrantedAuthority(authority.getAuthority())).toList());
+			
+			OAuth2Authorization.Builder authorizationBuilder = OAuth2Authorization.withRegisteredClient(registeredClient)
+					.attribute(Principal.class.getName(), userPrincipal)
+					.principalName(username)
+					.authorizationGrantType(new AuthorizationGrantType("password"))
+					.authorizedScopes(authorizedScopes);
+			if (generatedAccessToken instanceof ClaimAccessor) {
+				authorizationBuilder.token(accessToken, (metadata) ->
+						metadata.put(OAuth2Authorization.Token.CLAIMS_METADATA_NAME, ((ClaimAccessor) generatedAccessToken).getClaims()));
+			} else {
+				authorizationBuilder.accessToken(accessToken);
+			}
+			
+			this.authorizationService.save(authorizationBuilder.build());
 		}
-				
-		OAuth2Authorization authorization = authorizationBuilder.build();
-		this.authorizationService.save(authorization);
 		
 		return new OAuth2AccessTokenAuthenticationToken(registeredClient, clientPrincipal, accessToken);
 	}
@@ -130,6 +156,25 @@ public class CustomPasswordAuthenticationProvider implements AuthenticationProvi
 		return CustomPasswordAuthenticationToken.class.isAssignableFrom(authentication);
 	}
 
+	private void upgradeEncodingIfNeeded(UserDetails user, String password) {
+		if (!passwordVerifier.upgradeEncoding(user.getPassword())) {
+			return;
+		}
+		try {
+			userDetailsPasswordService.updatePassword(user, passwordVerifier.encode(password));
+		} catch (RuntimeException e) {
+			// The login already succeeded; the hash is upgraded on a later login instead
+			logger.warn("Could not upgrade password hash for {}: {}", user.getUsername(), e.getMessage());
+		}
+	}
+
+	private static String getRemoteAddress(Authentication authentication) {
+		if (authentication.getDetails() instanceof WebAuthenticationDetails details) {
+			return details.getRemoteAddress();
+		}
+		return null;
+	}
+
 	private static OAuth2ClientAuthenticationToken getAuthenticatedClientElseThrowInvalidClient(Authentication authentication) {
 		
 		OAuth2ClientAuthenticationToken clientPrincipal = null;
@@ -0,0 +1,65 @@
+package com.henrique.dscatalog.config.customgrant;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2Error;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed-window counters checked before any hashing: every attempt counts against the client IP,
+ * and only failures count against the username, so a user is not locked out by their own logins.
+ */
+public class LoginAttemptLimiter {
+
+	public static final String TOO_MANY_ATTEMPTS = "too_many_attempts";
+
+	private final Cache<String, AtomicInteger> attemptsByIp;
+	private final Cache<String, AtomicInteger> failuresByUsername;
+	private final int maxAttemptsPerIp;
+	private final int maxFailuresPerUsername;
+	private final Duration window;
+
+	public LoginAttemptLimiter(int maxAttemptsPerIp, int maxFailuresPerUsername, Duration window, long maxKeys) {
+		this.maxAttemptsPerIp = maxAttemptsPerIp;
+		this.maxFailuresPerUsername = maxFailuresPerUsername;
+		this.window = window;
+		// The window starts at the first attempt: incrementing the counter is not a cache write
+		this.attemptsByIp = Caffeine.newBuilder().maximumSize(maxKeys).expireAfterWrite(window).build();
+		this.failuresByUsername = Caffeine.newBuilder().maximumSize(maxKeys).expireAfterWrite(window).build();
+	}
+
+	public void checkAttempt(String username, String ip) {
+		if (ip != null && attemptsByIp.get(ip, key -> new AtomicInteger()).incrementAndGet() > maxAttemptsPerIp) {
+			throw tooManyAttempts();
+		}
+		AtomicInteger failures = failuresByUsername.getIfPresent(usernameKey(username));
+		if (failures != null && failures.get() >= maxFailuresPerUsername) {
+			throw tooManyAttempts();
+		}
+	}
+
+	public void recordFailure(String username) {
+		failuresByUsername.get(usernameKey(username), key -> new AtomicInteger()).incrementAndGet();
+	}
+
+	public void recordSuccess(String username) {
+		failuresByUsername.invalidate(usernameKey(username));
+	}
+
+	public Duration getWindow() {
+		return window;
+	}
+
+	private static String usernameKey(String username) {
+		return username.toLowerCase(Locale.ROOT);
+	}
+
+	private static OAuth2AuthenticationException tooManyAttempts() {
+		return new OAuth2AuthenticationException(new OAuth2Error(TOO_MANY_ATTEMPTS,
+				"Too many login attempts, try again later", null));
+	}
+}
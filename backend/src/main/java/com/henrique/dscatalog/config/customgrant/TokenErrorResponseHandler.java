@@ -0,0 +1,60 @@
+package com.henrique.dscatalog.config.customgrant;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.core.http.converter.OAuth2ErrorHttpMessageConverter;
+import org.springframework.security.oauth2.server.authorization.web.authentication.OAuth2ErrorAuthenticationFailureHandler;
+import org.springframework.security.web.authentication.AuthenticationFailureHandler;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Answers admission-control rejections with 429/503 and a Retry-After header; every other token
+ * error keeps the standard 400 response.
+ */
+public class TokenErrorResponseHandler implements AuthenticationFailureHandler {
+
+	private final AuthenticationFailureHandler delegate = new OAuth2ErrorAuthenticationFailureHandler();
+	private final HttpMessageConverter<OAuth2Error> errorConverter = new OAuth2ErrorHttpMessageConverter();
+	private final Duration attemptWindow;
+
+	public TokenErrorResponseHandler(Duration attemptWindow) {
+		this.attemptWindow = attemptWindow;
+	}
+
+	@Override
+	public void onAuthenticationFailure(HttpServletRequest request, HttpServletResponse response,
+			AuthenticationException exception) throws IOException, ServletException {
+
+		if (exception instanceof OAuth2AuthenticationException oauth2Exception) {
+			OAuth2Error error = oauth2Exception.getError();
+			if (LoginAttemptLimiter.TOO_MANY_ATTEMPTS.equals(error.getErrorCode())) {
+				write(response, HttpStatus.TOO_MANY_REQUESTS, attemptWindow.toSeconds(), error);
+				return;
+			}
+			if (OAuth2ErrorCodes.TEMPORARILY_UNAVAILABLE.equals(error.getErrorCode())) {
+				write(response, HttpStatus.SERVICE_UNAVAILABLE, 1, error);
+				return;
+			}
+		}
+		delegate.onAuthenticationFailure(request, response, exception);
+	}
+
+	private void write(HttpServletResponse response, HttpStatus status, long retryAfterSeconds, OAuth2Error error)
+			throws IOException {
+		ServletServerHttpResponse httpResponse = new ServletServerHttpResponse(response);
+		httpResponse.setStatusCode(status);
+		httpResponse.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+		errorConverter.write(error, null, httpResponse);
+	}
+}
@@ -0,0 +1,90 @@
+package com.henrique.dscatalog.config.datasource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Caps the number of connections in use with a fair semaphore. With virtual threads there is no
+ * request thread pool left to bound concurrency, so without it thousands of requests would queue
+ * inside the pool and time out together; here they wait in order and give up after the timeout.
+ */
+public class ConcurrencyLimitingDataSource extends DelegatingDataSource {
+
+	private final Semaphore permits;
+	private final int limit;
+	private final long acquireTimeoutMillis;
+
+	public ConcurrencyLimitingDataSource(DataSource targetDataSource, int limit, long acquireTimeoutMillis) {
+		super(targetDataSource);
+		this.permits = new Semaphore(limit, true);
+		this.limit = limit;
+		this.acquireTimeoutMillis = acquireTimeoutMillis;
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		acquire();
+		try {
+			return releaseOnClose(obtainTargetDataSource().getConnection());
+		} catch (SQLException | RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		acquire();
+		try {
+			return releaseOnClose(obtainTargetDataSource().getConnection(username, password));
+		} catch (SQLException | RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	public int getAvailablePermits() {
+		return permits.availablePermits();
+	}
+
+	public int getQueueLength() {
+		return permits.getQueueLength();
+	}
+
+	private void acquire() throws SQLException {
+		try {
+			if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+				throw new SQLTransientConnectionException(
+						"Database concurrency limit of " + limit + " reached, waited " + acquireTimeoutMillis + "ms");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLTransientConnectionException("Interrupted while waiting for a database connection", e);
+		}
+	}
+
+	private Connection releaseOnClose(Connection target) {
+		AtomicBoolean released = new AtomicBoolean();
+		return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+				(proxy, method, args) -> {
+					try {
+						return method.invoke(target, args);
+					} catch (InvocationTargetException e) {
+						throw e.getTargetException();
+					} finally {
+						if ("close".equals(method.getName()) && released.compareAndSet(false, true)) {
+							permits.release();
+						}
+					}
+				});
+	}
+}
@@ -0,0 +1,127 @@
+package com.henrique.dscatalog.config.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The replica pools read-only transactions are spread over. Each replica's replication lag is
+ * polled with lagQuery; replicas further behind than maxLagMillis, or whose last probe or connect
+ * failed, are skipped until a later probe finds them caught up again.
+ */
+public class ReadReplicas implements DisposableBean {
+
+	public enum Selection { ROUND_ROBIN, LEAST_LOADED }
+
+	private static final Logger logger = LoggerFactory.getLogger(ReadReplicas.class);
+
+	private final List<Replica> replicas;
+	private final Selection selection;
+	private final long maxLagMillis;
+	private final String lagQuery;
+	private final AtomicInteger next = new AtomicInteger();
+
+	public ReadReplicas(List<DataSource> dataSources, Selection selection, long maxLagMillis, String lagQuery) {
+		this.replicas = dataSources.stream().map(Replica::new).toList();
+		this.selection = selection;
+		this.maxLagMillis = maxLagMillis;
+		this.lagQuery = lagQuery;
+		checkLag();
+	}
+
+	@Scheduled(fixedDelayString = "${datasource.replicas.lag-check-ms}")
+	public void checkLag() {
+		for (int i = 0; i < replicas.size(); i++) {
+			Replica replica = replicas.get(i);
+			try (Connection connection = replica.dataSource.getConnection();
+				 Statement statement = connection.createStatement();
+				 ResultSet rs = statement.executeQuery(lagQuery)) {
+				rs.next();
+				replica.lagMillis = Math.round(rs.getDouble(1));
+			} catch (SQLException e) {
+				if (replica.lagMillis != Long.MAX_VALUE) {
+					logger.warn("Read replica {} is unreachable, reads fall back to the primary", i, e);
+				}
+				replica.lagMillis = Long.MAX_VALUE;
+			}
+		}
+	}
+
+	/**
+	 * Opens a connection on a replica within the lag budget, or returns null when there is none
+	 * and the caller should read from the primary instead.
+	 */
+	public Connection getConnection() {
+		List<Replica> candidates = replicas.stream().filter(r -> r.lagMillis <= maxLagMillis).toList();
+		if (candidates.isEmpty()) {
+			return null;
+		}
+
+		Replica replica = selection == Selection.LEAST_LOADED
+				? candidates.stream().min(Comparator.comparingInt(r -> r.active.get())).orElseThrow()
+				: candidates.get(Math.floorMod(next.getAndIncrement(), candidates.size()));
+		try {
+			return replica.open();
+		} catch (SQLException e) {
+			logger.warn("Could not connect to read replica {}, reading from the primary", replicas.indexOf(replica), e);
+			replica.lagMillis = Long.MAX_VALUE;
+			return null;
+		}
+	}
+
+	@Override
+	public void destroy() throws Exception {
+		for (Replica replica : replicas) {
+			DataSource pool = replica.dataSource;
+			while (pool instanceof DelegatingDataSource delegating) {
+				pool = delegating.getTargetDataSource();
+			}
+			if (pool instanceof AutoCloseable closeable) {
+				closeable.close();
+			}
+		}
+	}
+
+	private static class Replica {
+		private final DataSource dataSource;
+		private final AtomicInteger active = new AtomicInteger();
+		private volatile long lagMillis;
+
+		private Replica(DataSource dataSource) {
+			this.dataSource = dataSource;
+		}
+
+		// Counts open connections for LEAST_LOADED without depending on the pool implementation
+		private Connection open() throws SQLException {
+			Connection target = dataSource.getConnection();
+			active.incrementAndGet();
+			AtomicBoolean closed = new AtomicBoolean();
+			return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+					(proxy, method, args) -> {
+						try {
+							return method.invoke(target, args);
+						} catch (InvocationTargetException e) {
+							throw e.getTargetException();
+						} finally {
+							if ("close".equals(method.getName()) && closed.compareAndSet(false, true)) {
+								active.decrementAndGet();
+							}
+						}
+					});
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package com.henrique.dscatalog.config.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Sends read-only transactions to the read replicas and everything else to the primary. The
+ * physical connection is only fetched at the first statement, once the transaction has been
+ * marked read-only, which is why this builds on LazyConnectionDataSourceProxy.
+ * <p>
+ * A session that ran a read-write transaction keeps reading from the primary for stickyMillis
+ * afterwards, so it sees its own writes even while the replicas catch up. Reads whose result
+ * outlives the request, such as cache and index loads, go through {@link #readFromPrimary} instead:
+ * they run for whoever happens to miss, so a session cannot tell whether they would see a write.
+ */
+public class ReadWriteRoutingDataSource extends LazyConnectionDataSourceProxy {
+
+	private static final ThreadLocal<Boolean> primaryReads = new ThreadLocal<>();
+
+	public ReadWriteRoutingDataSource(DataSource primary, ReadReplicas replicas,
+									  Supplier<String> sessionKey, long stickyMillis) {
+		Cache<String, Boolean> recentWriters = Caffeine.newBuilder()
+				.expireAfterWrite(Duration.ofMillis(stickyMillis))
+				.build();
+		setTargetDataSource(new WriteTrackingDataSource(primary, sessionKey, recentWriters));
+		setReadOnlyDataSource(new ReplicaDataSource(primary, replicas, sessionKey, recentWriters));
+		afterPropertiesSet();
+	}
+
+	/**
+	 * Runs work with its read-only transactions served by the primary. The physical connection is
+	 * chosen at the first statement, so this has to wrap that statement, not just the transaction.
+	 */
+	public static <T> T readFromPrimary(Supplier<T> work) {
+		Boolean previous = primaryReads.get();
+		primaryReads.set(Boolean.TRUE);
+		try {
+			return work.get();
+		}
+		finally {
+			if (previous == null) {
+				primaryReads.remove();
+			}
+			else {
+				primaryReads.set(previous);
+			}
+		}
+	}
+
+	private static class WriteTrackingDataSource extends DelegatingDataSource {
+		private final Supplier<String> sessionKey;
+		private final Cache<String, Boolean> recentWriters;
+
+		private WriteTrackingDataSource(DataSource primary, Supplier<String> sessionKey, Cache<String, Boolean> recentWriters) {
+			super(primary);
+			this.sessionKey = sessionKey;
+			this.recentWriters = recentWriters;
+		}
+
+		@Override
+		public Connection getConnection() throws SQLException {
+			if (TransactionSynchronizationManager.isSynchronizationActive()
+					&& TransactionSynchronizationManager.isActualTransactionActive()
+					&& !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+				String key = sessionKey.get();
+				if (key != null) {
+					recentWriters.put(key, Boolean.TRUE);
+					// Restart the window at commit so long transactions still get the full stickiness
+					TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+						@Override
+						public void afterCompletion(int status) {
+							recentWriters.put(key, Boolean.TRUE);
+						}
+					});
+				}
+			}
+			return super.getConnection();
+		}
+	}
+
+	private static class ReplicaDataSource extends AbstractDataSource {
+		private final DataSource primary;
+		private final ReadReplicas replicas;
+		private final Supplier<String> sessionKey;
+		private final Cache<String, Boolean> recentWriters;
+
+		private ReplicaDataSource(DataSource primary, ReadReplicas replicas,
+								  Supplier<String> sessionKey, Cache<String, Boolean> recentWriters) {
+			this.primary = primary;
+			this.replicas = replicas;
+			this.sessionKey = sessionKey;
+			this.recentWriters = recentWriters;
+		}
+
+		@Override
+		public Connection getConnection() throws SQLException {
+			String key = sessionKey.get();
+			if (primaryReads.get() == null && (key == null || recentWriters.getIfPresent(key) == null)) {
+				Connection connection = replicas.getConnection();
+				if (connection != null) {
+					return connection;
+				}
+			}
+			return primary.getConnection();
+		}
+
+		@Override
+		public Connection getConnection(String username, String password) throws SQLException {
+			return primary.getConnection(username, password);
+		}
+	}
+}
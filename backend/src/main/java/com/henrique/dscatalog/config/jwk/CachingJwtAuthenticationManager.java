@@ -0,0 +1,95 @@
+package com.henrique.dscatalog.config.jwk;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.server.resource.authentication.BearerTokenAuthenticationToken;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+
+/**
+ * Remembers verified bearer tokens, keyed by their SHA-256, so repeated calls with the same token skip
+ * parsing, signature verification and the authorities conversion. Entries expire with the token, or
+ * after {@code maxTtl} if that comes first. Failed verifications are never cached.
+ */
+public class CachingJwtAuthenticationManager implements AuthenticationManager {
+
+	private final AuthenticationProvider delegate;
+	private final Cache<String, JwtAuthenticationToken> authentications;
+
+	public CachingJwtAuthenticationManager(AuthenticationProvider delegate, long maxSize, Duration maxTtl) {
+		this.delegate = delegate;
+		this.authentications = Caffeine.newBuilder()
+				.maximumSize(maxSize)
+				.expireAfter(new TokenExpiry(maxTtl))
+				.recordStats()
+				.build();
+	}
+
+	@Override
+	public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+		BearerTokenAuthenticationToken bearer = (BearerTokenAuthenticationToken) authentication;
+		String key = sha256(bearer.getToken());
+
+		JwtAuthenticationToken cached = authentications.getIfPresent(key);
+		if (cached == null) {
+			Authentication result = delegate.authenticate(bearer);
+			if (!(result instanceof JwtAuthenticationToken jwtAuthentication)) {
+				return result;
+			}
+			authentications.put(key, jwtAuthentication);
+			return result;
+		}
+
+		// A fresh token per request: details (remote address, session) belong to the current request
+		JwtAuthenticationToken result = new JwtAuthenticationToken(cached.getToken(), cached.getAuthorities(), cached.getName());
+		result.setDetails(bearer.getDetails());
+		return result;
+	}
+
+	public Cache<String, JwtAuthenticationToken> getCache() {
+		return authentications;
+	}
+
+	private static String sha256(String token) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+			return HexFormat.of().formatHex(digest);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private record TokenExpiry(Duration maxTtl) implements Expiry<String, JwtAuthenticationToken> {
+
+		@Override
+		public long expireAfterCreate(String key, JwtAuthenticationToken value, long currentTime) {
+			Instant expiresAt = value.getToken().getExpiresAt();
+			if (expiresAt == null) {
+				return maxTtl.toNanos();
+			}
+			Duration untilExpiry = Duration.between(Instant.now(), expiresAt);
+			return Math.max(0, Math.min(untilExpiry.toNanos(), maxTtl.toNanos()));
+		}
+
+		@Override
+		public long expireAfterUpdate(String key, JwtAuthenticationToken value, long currentTime, long currentDuration) {
+			return expireAfterCreate(key, value, currentTime);
+		}
+
+		@Override
+		public long expireAfterRead(String key, JwtAuthenticationToken value, long currentTime, long currentDuration) {
+			return currentDuration;
+		}
+	}
+}
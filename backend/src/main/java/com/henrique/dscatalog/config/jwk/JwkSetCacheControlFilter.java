@@ -0,0 +1,39 @@
+package com.henrique.dscatalog.config.jwk;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Lets resource servers cache the JWK set. The max-age must stay below the time a retired key is still
+ * published, so that caches pick up a new signing key before the old one disappears.
+ */
+public class JwkSetCacheControlFilter extends OncePerRequestFilter {
+
+	private final String jwkSetEndpoint;
+	private final String cacheControl;
+
+	public JwkSetCacheControlFilter(String jwkSetEndpoint, Duration maxAge) {
+		this.jwkSetEndpoint = jwkSetEndpoint;
+		this.cacheControl = CacheControl.maxAge(maxAge).cachePublic().getHeaderValue();
+	}
+
+	@Override
+	protected boolean shouldNotFilter(HttpServletRequest request) {
+		return !jwkSetEndpoint.equals(request.getRequestURI().substring(request.getContextPath().length()));
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+		filterChain.doFilter(request, response);
+	}
+}
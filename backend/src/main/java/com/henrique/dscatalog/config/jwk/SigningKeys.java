@@ -0,0 +1,162 @@
+package com.henrique.dscatalog.config.jwk;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import org.bouncycastle.jce.ECNamedCurveTable;
+import org.bouncycastle.jce.spec.ECNamedCurveParameterSpec;
+import org.springframework.boot.ssl.pem.PemContent;
+import org.springframework.core.io.Resource;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The keys published in the JWK set. The first key signs new tokens; the others are only kept for
+ * verification, so a rotation is: put the new key first, and drop the old one once its tokens expired.
+ */
+public class SigningKeys {
+
+	private final JWKSet jwkSet;
+	private final JWK signingKey;
+
+	public SigningKeys(List<JWK> keys) {
+		if (keys.isEmpty()) {
+			throw new IllegalArgumentException("At least one signing key is required");
+		}
+		this.jwkSet = new JWKSet(keys);
+		this.signingKey = keys.get(0);
+	}
+
+	public JWKSet getJwkSet() {
+		return jwkSet;
+	}
+
+	public String getSigningKeyId() {
+		return signingKey.getKeyID();
+	}
+
+	public SignatureAlgorithm getSigningAlgorithm() {
+		if (signingKey instanceof ECKey ecKey) {
+			if (Curve.P_384.equals(ecKey.getCurve())) {
+				return SignatureAlgorithm.ES384;
+			}
+			if (Curve.P_521.equals(ecKey.getCurve())) {
+				return SignatureAlgorithm.ES512;
+			}
+			return SignatureAlgorithm.ES256;
+		}
+		return SignatureAlgorithm.RS256;
+	}
+
+	public static SigningKeys fromKeyStore(Resource location, String type, String password, List<String> aliases) {
+		try (InputStream in = location.getInputStream()) {
+			KeyStore keyStore = KeyStore.getInstance(type);
+			keyStore.load(in, password.toCharArray());
+
+			List<String> keyAliases = aliases.isEmpty() ? privateKeyAliases(keyStore) : aliases;
+			List<JWK> keys = new ArrayList<>();
+			for (String alias : keyAliases) {
+				if (!(keyStore.getKey(alias, password.toCharArray()) instanceof PrivateKey privateKey)) {
+					throw new IllegalStateException("No private key with alias " + alias + " in " + location);
+				}
+				keys.add(toJwk(keyStore.getCertificate(alias).getPublicKey(), privateKey, alias));
+			}
+			return new SigningKeys(keys);
+		} catch (IOException | GeneralSecurityException | JOSEException e) {
+			throw new IllegalStateException("Could not load signing keys from " + location, e);
+		}
+	}
+
+	public static SigningKeys fromPem(List<Resource> locations) {
+		List<JWK> keys = new ArrayList<>();
+		for (Resource location : locations) {
+			try (InputStream in = location.getInputStream()) {
+				PrivateKey privateKey = PemContent.of(new String(in.readAllBytes(), StandardCharsets.UTF_8)).getPrivateKey();
+				if (privateKey == null) {
+					throw new IllegalStateException("No private key in " + location);
+				}
+				keys.add(toJwk(derivePublicKey(privateKey), privateKey, null));
+			} catch (IOException | GeneralSecurityException | JOSEException e) {
+				throw new IllegalStateException("Could not load signing key from " + location, e);
+			}
+		}
+		return new SigningKeys(keys);
+	}
+
+	public static SigningKeys generateRsa() {
+		try {
+			return new SigningKeys(List.of(new RSAKeyGenerator(2048).keyIDFromThumbprint(true).generate()));
+		} catch (JOSEException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static List<String> privateKeyAliases(KeyStore keyStore) throws GeneralSecurityException {
+		List<String> aliases = new ArrayList<>();
+		for (String alias : Collections.list(keyStore.aliases())) {
+			if (keyStore.isKeyEntry(alias)) {
+				aliases.add(alias);
+			}
+		}
+		Collections.sort(aliases);
+		return aliases;
+	}
+
+	// Without an explicit kid the RFC 7638 thumbprint is used, so every node loading the same file publishes the same kid
+	private static JWK toJwk(PublicKey publicKey, PrivateKey privateKey, String kid) throws JOSEException {
+		if (publicKey instanceof RSAPublicKey rsaPublicKey) {
+			RSAKey.Builder builder = new RSAKey.Builder(rsaPublicKey).privateKey(privateKey);
+			return (kid != null ? builder.keyID(kid) : builder.keyIDFromThumbprint()).build();
+		}
+		if (publicKey instanceof ECPublicKey ecPublicKey) {
+			Curve curve = Curve.forECParameterSpec(ecPublicKey.getParams());
+			if (curve == null) {
+				throw new IllegalStateException("Unsupported EC curve");
+			}
+			ECKey.Builder builder = new ECKey.Builder(curve, ecPublicKey).privateKey(privateKey);
+			return (kid != null ? builder.keyID(kid) : builder.keyIDFromThumbprint()).build();
+		}
+		throw new IllegalStateException("Unsupported key type " + publicKey.getAlgorithm());
+	}
+
+	// A PEM file only holds the private key, so the public half is computed from it
+	private static PublicKey derivePublicKey(PrivateKey privateKey) throws GeneralSecurityException {
+		if (privateKey instanceof RSAPrivateCrtKey rsaPrivateKey) {
+			return KeyFactory.getInstance("RSA").generatePublic(
+					new RSAPublicKeySpec(rsaPrivateKey.getModulus(), rsaPrivateKey.getPublicExponent()));
+		}
+		if (privateKey instanceof ECPrivateKey ecPrivateKey) {
+			Curve curve = Curve.forECParameterSpec(ecPrivateKey.getParams());
+			if (curve == null) {
+				throw new IllegalStateException("Unsupported EC curve");
+			}
+			ECNamedCurveParameterSpec spec = ECNamedCurveTable.getParameterSpec(curve.getStdName());
+			org.bouncycastle.math.ec.ECPoint q = spec.getG().multiply(ecPrivateKey.getS()).normalize();
+			ECPoint point = new ECPoint(q.getAffineXCoord().toBigInteger(), q.getAffineYCoord().toBigInteger());
+			return KeyFactory.getInstance("EC").generatePublic(new ECPublicKeySpec(point, ecPrivateKey.getParams()));
+		}
+		throw new IllegalStateException("Unsupported key type " + privateKey.getAlgorithm());
+	}
+}
@@ -0,0 +1,33 @@
+package com.henrique.dscatalog.dto;
+
+import com.henrique.dscatalog.resources.exceptions.FieldMessage;
+
+import java.io.Serializable;
+import java.util.List;
+
+public class BatchItemErrorDTO implements Serializable {
+    private Integer index;
+    private Long id;
+    private List<FieldMessage> errors;
+
+    public BatchItemErrorDTO() {
+    }
+
+    public BatchItemErrorDTO(Integer index, Long id, List<FieldMessage> errors) {
+        this.index = index;
+        this.id = id;
+        this.errors = errors;
+    }
+
+    public Integer getIndex() {
+        return index;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public List<FieldMessage> getErrors() {
+        return errors;
+    }
+}
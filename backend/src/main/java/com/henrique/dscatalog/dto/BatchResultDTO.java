@@ -0,0 +1,81 @@
+package com.henrique.dscatalog.dto;
+
+import com.henrique.dscatalog.resources.exceptions.FieldMessage;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+
+public class BatchResultDTO implements Serializable {
+    private int inserted;
+    private int updated;
+    private int failed;
+    private int droppedErrors;
+    private List<BatchItemErrorDTO> errors = new ArrayList<>();
+    private transient int maxErrors = Integer.MAX_VALUE;
+
+    public BatchResultDTO() {
+    }
+
+    public int getInserted() {
+        return inserted;
+    }
+
+    public int getUpdated() {
+        return updated;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public List<BatchItemErrorDTO> getErrors() {
+        return errors;
+    }
+
+    public int getDroppedErrors() {
+        return droppedErrors;
+    }
+
+    // Keeps the counters exact while bounding how many item errors are held and returned
+    public void setMaxErrors(int maxErrors) {
+        this.maxErrors = maxErrors;
+    }
+
+    public void addInserted() {
+        inserted++;
+    }
+
+    public void addUpdated() {
+        updated++;
+    }
+
+    public void addError(int index, Long id, List<FieldMessage> messages) {
+        failed++;
+        keepError(new BatchItemErrorDTO(index, id, messages));
+    }
+
+    public void merge(BatchResultDTO other) {
+        merge(other, IntUnaryOperator.identity());
+    }
+
+    public void merge(BatchResultDTO other, IntUnaryOperator indexMapping) {
+        inserted += other.inserted;
+        updated += other.updated;
+        failed += other.failed;
+        droppedErrors += other.droppedErrors;
+        for (BatchItemErrorDTO error : other.errors) {
+            keepError(new BatchItemErrorDTO(indexMapping.applyAsInt(error.getIndex()), error.getId(), error.getErrors()));
+        }
+    }
+
+    private void keepError(BatchItemErrorDTO error) {
+        if (errors.size() < maxErrors) {
+            errors.add(error);
+        }
+        else {
+            droppedErrors++;
+        }
+    }
+}
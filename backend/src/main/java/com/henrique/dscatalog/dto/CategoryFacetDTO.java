@@ -0,0 +1,38 @@
+package com.henrique.dscatalog.dto;
+
+import com.henrique.dscatalog.projections.CategoryFacetProjection;
+
+import java.io.Serializable;
+
+public class CategoryFacetDTO implements Serializable {
+    private Long id;
+    private String name;
+    private Long productCount;
+
+    public CategoryFacetDTO() {
+    }
+
+    public CategoryFacetDTO(Long id, String name, Long productCount) {
+        this.id = id;
+        this.name = name;
+        this.productCount = productCount;
+    }
+
+    public CategoryFacetDTO(CategoryFacetProjection projection) {
+        id = projection.getId();
+        name = projection.getName();
+        productCount = projection.getProductCount();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Long getProductCount() {
+        return productCount;
+    }
+}
@@ -0,0 +1,37 @@
+package com.henrique.dscatalog.dto;
+
+import java.io.Serializable;
+import java.util.List;
+
+public class CursorPageDTO<T> implements Serializable {
+    private List<T> content;
+    private Integer size;
+    private String next;
+    private String previous;
+
+    public CursorPageDTO() {
+    }
+
+    public CursorPageDTO(List<T> content, Integer size, String next, String previous) {
+        this.content = content;
+        this.size = size;
+        this.next = next;
+        this.previous = previous;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public Integer getSize() {
+        return size;
+    }
+
+    public String getNext() {
+        return next;
+    }
+
+    public String getPrevious() {
+        return previous;
+    }
+}
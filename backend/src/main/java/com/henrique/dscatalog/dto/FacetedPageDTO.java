@@ -0,0 +1,27 @@
+package com.henrique.dscatalog.dto;
+
+import org.springframework.data.domain.Page;
+
+import java.io.Serializable;
+import java.util.List;
+
+public class FacetedPageDTO<T> implements Serializable {
+    private Page<T> page;
+    private List<CategoryFacetDTO> facets;
+
+    public FacetedPageDTO() {
+    }
+
+    public FacetedPageDTO(Page<T> page, List<CategoryFacetDTO> facets) {
+        this.page = page;
+        this.facets = facets;
+    }
+
+    public Page<T> getPage() {
+        return page;
+    }
+
+    public List<CategoryFacetDTO> getFacets() {
+        return facets;
+    }
+}
@@ -0,0 +1,24 @@
+package com.henrique.dscatalog.dto;
+
+public class ImportResultDTO extends BatchResultDTO {
+    private long elapsedMillis;
+
+    public ImportResultDTO() {
+    }
+
+    public long getProcessed() {
+        return (long) getInserted() + getUpdated() + getFailed();
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public long getRowsPerSecond() {
+        return elapsedMillis == 0 ? getProcessed() : getProcessed() * 1000 / elapsedMillis;
+    }
+}
@@ -2,6 +2,7 @@ package com.henrique.dscatalog.dto;
 
 import com.henrique.dscatalog.entities.Category;
 import com.henrique.dscatalog.entities.Product;
+import com.henrique.dscatalog.projections.ProductSearchProjection;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.PastOrPresent;
 import jakarta.validation.constraints.Positive;
@@ -54,6 +55,30 @@ public class ProductDTO implements Serializable {
         categories.forEach(cat -> this.categories.add(new CategoryDTO(cat)));
     }
 
+    public ProductDTO(ProductDTO other) {
+        this(other.id, other.name, other.description, other.price, other.imgUrl, other.date);
+        other.categories.forEach(cat -> categories.add(new CategoryDTO(cat.getId(), cat.getName())));
+    }
+
+    public ProductDTO(ProductSearchProjection projection) {
+        id = projection.getId();
+        name = projection.getName();
+        description = projection.getDescription();
+        price = projection.getPrice();
+        imgUrl = projection.getImgUrl();
+        date = projection.getDate();
+
+        if (projection.getCategories() == null) {
+            return;
+        }
+        for (String category : projection.getCategories()) {
+            int separator = category.indexOf(':');
+            categories.add(new CategoryDTO(
+                    Long.parseLong(category.substring(0, separator)),
+                    category.substring(separator + 1)));
+        }
+    }
+
     public Long getId() {
         return id;
     }
@@ -0,0 +1,39 @@
+package com.henrique.dscatalog.dto;
+
+import org.springframework.data.domain.Slice;
+
+import java.io.Serializable;
+import java.util.List;
+
+public class SliceDTO<T> implements Serializable {
+    private List<T> content;
+    private Integer number;
+    private Integer size;
+    private boolean hasNext;
+
+    public SliceDTO() {
+    }
+
+    public SliceDTO(Slice<T> slice) {
+        content = slice.getContent();
+        number = slice.getNumber();
+        size = slice.getSize();
+        hasNext = slice.hasNext();
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public Integer getNumber() {
+        return number;
+    }
+
+    public Integer getSize() {
+        return size;
+    }
+
+    public boolean isHasNext() {
+        return hasNext;
+    }
+}
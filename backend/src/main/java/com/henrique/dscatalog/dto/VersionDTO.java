@@ -0,0 +1,44 @@
+package com.henrique.dscatalog.dto;
+
+import com.henrique.dscatalog.projections.ProductVersionProjection;
+import com.henrique.dscatalog.projections.VersionProjection;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+public class VersionDTO implements Serializable {
+    private String etag;
+    private long lastModified;
+
+    public VersionDTO() {
+    }
+
+    public VersionDTO(String etag, long lastModified) {
+        this.etag = etag;
+        this.lastModified = lastModified;
+    }
+
+    public VersionDTO(String prefix, VersionProjection projection) {
+        etag = "\"" + prefix + "-" + projection.getVersion() + "\"";
+        lastModified = toEpochMilli(projection.getLastModified());
+    }
+
+    // A product body embeds its category names, so renaming a category must change the validator too
+    public VersionDTO(String prefix, ProductVersionProjection projection) {
+        etag = "\"" + prefix + "-" + projection.getVersion() + "-" + projection.getCategoriesVersion() + "\"";
+        lastModified = Math.max(toEpochMilli(projection.getLastModified()),
+                toEpochMilli(projection.getCategoriesLastModified()));
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    private static long toEpochMilli(Instant instant) {
+        return instant == null ? -1 : instant.toEpochMilli();
+    }
+}
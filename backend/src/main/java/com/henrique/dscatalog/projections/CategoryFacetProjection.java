@@ -0,0 +1,6 @@
+package com.henrique.dscatalog.projections;
+
+public interface CategoryFacetProjection extends IdProjection<Long> {
+    String getName();
+    Long getProductCount();
+}
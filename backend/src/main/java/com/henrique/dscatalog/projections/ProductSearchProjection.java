@@ -0,0 +1,13 @@
+package com.henrique.dscatalog.projections;
+
+import java.time.Instant;
+
+public interface ProductSearchProjection extends IdProjection<Long> {
+    String getName();
+    String getDescription();
+    Double getPrice();
+    String getImgUrl();
+    Instant getDate();
+    String[] getCategories();
+    Long getTotalElements();
+}
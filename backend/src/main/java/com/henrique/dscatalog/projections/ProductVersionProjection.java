@@ -0,0 +1,8 @@
+package com.henrique.dscatalog.projections;
+
+import java.time.Instant;
+
+public interface ProductVersionProjection extends VersionProjection {
+    Long getCategoriesVersion();
+    Instant getCategoriesLastModified();
+}
@@ -0,0 +1,24 @@
+package com.henrique.dscatalog.repositories;
+
+import com.henrique.dscatalog.entities.CatalogVersion;
+import com.henrique.dscatalog.projections.VersionProjection;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Optional;
+
+@Repository
+public interface CatalogVersionRepository extends JpaRepository<CatalogVersion, Long> {
+
+    @Query("SELECT obj.version AS version, obj.updatedAt AS lastModified FROM CatalogVersion obj WHERE obj.id = 1")
+    Optional<VersionProjection> findCurrent();
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE CatalogVersion obj SET obj.version = obj.version + 1, obj.updatedAt = :now WHERE obj.id = 1")
+    void increment(Instant now);
+}
@@ -1,9 +1,38 @@
 package com.henrique.dscatalog.repositories;
 
 import com.henrique.dscatalog.entities.Category;
+import com.henrique.dscatalog.projections.CategoryFacetProjection;
+import com.henrique.dscatalog.projections.VersionProjection;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface CategoryRepository extends JpaRepository<Category, Long> {
+
+    @Override
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    List<Category> findAll();
+
+    @Query(nativeQuery = true, value = """
+            SELECT tb_category.id, tb_category.name, COUNT(tb_product.id) AS productCount
+            FROM tb_category
+            LEFT JOIN tb_product_category ON tb_product_category.category_id = tb_category.id
+            LEFT JOIN tb_product ON tb_product.id = tb_product_category.product_id
+                AND LOWER(tb_product.name) LIKE LOWER(CONCAT('%',:name,'%'))
+            GROUP BY tb_category.id, tb_category.name
+            ORDER BY tb_category.name
+            """)
+    List<CategoryFacetProjection> searchCategoryFacets(String name);
+
+    @Query("""
+            SELECT obj.version AS version, COALESCE(obj.updatedAt, obj.createdAt) AS lastModified
+            FROM Category obj WHERE obj.id = :id
+            """)
+    Optional<VersionProjection> findVersionById(Long id);
 }
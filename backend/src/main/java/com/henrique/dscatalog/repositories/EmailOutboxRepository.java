@@ -0,0 +1,28 @@
+package com.henrique.dscatalog.repositories;
+
+import com.henrique.dscatalog.entities.EmailOutbox;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+
+    // SKIP LOCKED (lock timeout -2) lets several instances claim disjoint batches where the database supports it
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("""
+            SELECT obj FROM EmailOutbox obj
+            WHERE obj.sentAt IS NULL AND obj.attempts < :maxAttempts AND obj.nextAttemptAt <= :now
+            ORDER BY obj.nextAttemptAt
+            """)
+    List<EmailOutbox> searchDue(int maxAttempts, Instant now, Pageable pageable);
+}
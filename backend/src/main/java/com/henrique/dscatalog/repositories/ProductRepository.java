@@ -1,17 +1,26 @@
 package com.henrique.dscatalog.repositories;
 
+import com.henrique.dscatalog.config.CacheConfig;
 import com.henrique.dscatalog.entities.Product;
 import com.henrique.dscatalog.projections.ProductProjection;
+import com.henrique.dscatalog.projections.ProductSearchProjection;
+import com.henrique.dscatalog.projections.ProductVersionProjection;
+import jakarta.persistence.QueryHint;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
 
     @Query(nativeQuery = true, value = """
             SELECT * FROM (
@@ -33,6 +42,112 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
             """)
     Page<ProductProjection> searchProducts(List<Long> categoryIds, String name, Pageable pageable);
 
+    @Query(nativeQuery = true, value = """
+            SELECT * FROM (
+            SELECT tb_product.id, tb_product.name, tb_product.description, tb_product.price,
+            tb_product.img_url AS imgUrl, tb_product.date,
+            (SELECT ARRAY_AGG(CONCAT(tb_category.id, ':', tb_category.name))
+             FROM tb_product_category
+             INNER JOIN tb_category ON tb_category.id = tb_product_category.category_id
+             WHERE tb_product_category.product_id = tb_product.id) AS categories,
+            COUNT(*) OVER() AS totalElements
+            FROM tb_product
+            WHERE EXISTS (
+                SELECT 1 FROM tb_product_category
+                WHERE tb_product_category.product_id = tb_product.id
+                AND (:categoryIds IS NULL OR tb_product_category.category_id IN :categoryIds))
+            AND LOWER(tb_product.name) LIKE LOWER(CONCAT('%',:name,'%'))
+            ) AS tb_result
+            """)
+    List<ProductSearchProjection> searchProductsPage(List<Long> categoryIds, String name, Pageable pageable);
+
+    @Query(nativeQuery = true, value = """
+            SELECT * FROM (
+            SELECT tb_product.id, tb_product.name, tb_product.description, tb_product.price,
+            tb_product.img_url AS imgUrl, tb_product.date,
+            (SELECT ARRAY_AGG(CONCAT(tb_category.id, ':', tb_category.name))
+             FROM tb_product_category
+             INNER JOIN tb_category ON tb_category.id = tb_product_category.category_id
+             WHERE tb_product_category.product_id = tb_product.id) AS categories,
+            COUNT(*) OVER() AS totalElements,
+            SIMILARITY(LOWER(tb_product.name), LOWER(:name)) AS relevance
+            FROM tb_product
+            WHERE EXISTS (
+                SELECT 1 FROM tb_product_category
+                WHERE tb_product_category.product_id = tb_product.id
+                AND (:categoryIds IS NULL OR tb_product_category.category_id IN :categoryIds))
+            AND LOWER(tb_product.name) LIKE LOWER(CONCAT('%',:name,'%'))
+            ) AS tb_result
+            ORDER BY tb_result.relevance DESC, tb_result.id
+            """)
+    List<ProductSearchProjection> searchProductsPageByRelevance(List<Long> categoryIds, String name, Pageable pageable);
+
+    @Query(nativeQuery = true, value = """
+            SELECT * FROM (
+            SELECT tb_product.id, tb_product.name, tb_product.description, tb_product.price,
+            tb_product.img_url AS imgUrl, tb_product.date,
+            (SELECT ARRAY_AGG(CONCAT(tb_category.id, ':', tb_category.name))
+             FROM tb_product_category
+             INNER JOIN tb_category ON tb_category.id = tb_product_category.category_id
+             WHERE tb_product_category.product_id = tb_product.id) AS categories
+            FROM tb_product
+            WHERE EXISTS (
+                SELECT 1 FROM tb_product_category
+                WHERE tb_product_category.product_id = tb_product.id
+                AND (:categoryIds IS NULL OR tb_product_category.category_id IN :categoryIds))
+            AND LOWER(tb_product.name) LIKE LOWER(CONCAT('%',:name,'%'))
+            ) AS tb_result
+            """)
+    Slice<ProductSearchProjection> searchProductsSlice(List<Long> categoryIds, String name, Pageable pageable);
+
+    String COUNT_PRODUCTS = """
+            SELECT COUNT(*) FROM tb_product
+            WHERE EXISTS (
+                SELECT 1 FROM tb_product_category
+                WHERE tb_product_category.product_id = tb_product.id
+                AND (:categoryIds IS NULL OR tb_product_category.category_id IN :categoryIds))
+            AND LOWER(tb_product.name) LIKE LOWER(CONCAT('%',:name,'%'))
+            """;
+
+    @Query(nativeQuery = true, value = COUNT_PRODUCTS)
+    long countProducts(List<Long> categoryIds, String name);
+
+    // Same count, up to cache.product-counts.ttl-seconds old; only for listings that accept an estimate
+    @Cacheable(CacheConfig.PRODUCT_COUNTS)
+    @Query(nativeQuery = true, value = COUNT_PRODUCTS)
+    long countProductsCached(List<Long> categoryIds, String name);
+
     @Query(value = "SELECT obj FROM Product obj JOIN FETCH obj.categories WHERE obj.id IN :productIds")
     List<Product> searchProductsWithCategories(List<Long> productIds);
+
+    @Query(value = "SELECT DISTINCT obj FROM Product obj LEFT JOIN FETCH obj.categories WHERE obj.id IN :productIds")
+    List<Product> findAllWithCategoriesByIdIn(List<Long> productIds);
+
+    // Forward-only cursor for exports; PostgreSQL only honours the fetch size inside a transaction
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query(nativeQuery = true, value = """
+            SELECT tb_product.id, tb_product.name, tb_product.description, tb_product.price,
+            tb_product.img_url AS imgUrl, tb_product.date,
+            (SELECT ARRAY_AGG(CONCAT(tb_category.id, ':', tb_category.name))
+             FROM tb_product_category
+             INNER JOIN tb_category ON tb_category.id = tb_product_category.category_id
+             WHERE tb_product_category.product_id = tb_product.id) AS categories
+            FROM tb_product
+            ORDER BY tb_product.id
+            """)
+    Stream<ProductSearchProjection> streamAllForExport();
+
+    @Query(value = "SELECT DISTINCT obj FROM Product obj JOIN FETCH obj.categories")
+    List<Product> findAllWithCategories();
+
+    // The DTO embeds category names, so their versions are part of the product's validator
+    @Query("""
+            SELECT obj.version AS version, COALESCE(obj.updatedAt, obj.createdAt) AS lastModified,
+                COALESCE(SUM(cat.version), 0) AS categoriesVersion,
+                MAX(COALESCE(cat.updatedAt, cat.createdAt)) AS categoriesLastModified
+            FROM Product obj LEFT JOIN obj.categories cat
+            WHERE obj.id = :id
+            GROUP BY obj.id, obj.version, obj.updatedAt, obj.createdAt
+            """)
+    Optional<ProductVersionProjection> findVersionById(Long id);
 }
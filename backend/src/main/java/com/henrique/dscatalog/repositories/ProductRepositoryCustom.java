@@ -0,0 +1,10 @@
+package com.henrique.dscatalog.repositories;
+
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+
+public interface ProductRepositoryCustom {
+    List<Long> searchProductIdsByKeyset(List<Long> categoryIds, String name, String sortProperty,
+                                        Sort.Direction direction, Object key, Long id, int limit);
+}
@@ -0,0 +1,61 @@
+package com.henrique.dscatalog.repositories;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+
+public class ProductRepositoryCustomImpl implements ProductRepositoryCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Seeks past (key, id) instead of skipping rows with OFFSET, so every page costs the same
+     * regardless of depth. sortProperty must already be validated, it is concatenated into the query.
+     */
+    @Override
+    public List<Long> searchProductIdsByKeyset(List<Long> categoryIds, String name, String sortProperty,
+                                               Sort.Direction direction, Object key, Long id, int limit) {
+        String comparison = direction.isAscending() ? ">" : "<";
+        String order = direction.isAscending() ? "ASC" : "DESC";
+
+        StringBuilder jpql = new StringBuilder("""
+                SELECT obj.id FROM Product obj
+                WHERE EXISTS (SELECT 1 FROM obj.categories cat""");
+        if (!categoryIds.isEmpty()) {
+            jpql.append(" WHERE cat.id IN :categoryIds");
+        }
+        jpql.append(") AND LOWER(obj.name) LIKE LOWER(CONCAT('%', :name, '%'))");
+
+        if (id != null) {
+            if (sortProperty == null) {
+                jpql.append(" AND obj.id ").append(comparison).append(" :id");
+            }
+            else {
+                jpql.append(" AND (obj.").append(sortProperty).append(", obj.id) ")
+                        .append(comparison).append(" (:key, :id)");
+            }
+        }
+
+        jpql.append(" ORDER BY ");
+        if (sortProperty != null) {
+            jpql.append("obj.").append(sortProperty).append(" ").append(order).append(", ");
+        }
+        jpql.append("obj.id ").append(order);
+
+        TypedQuery<Long> query = entityManager.createQuery(jpql.toString(), Long.class);
+        if (!categoryIds.isEmpty()) {
+            query.setParameter("categoryIds", categoryIds);
+        }
+        query.setParameter("name", name);
+        if (id != null) {
+            query.setParameter("id", id);
+            if (sortProperty != null) {
+                query.setParameter("key", key);
+            }
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
+}
@@ -1,8 +1,13 @@
 package com.henrique.dscatalog.repositories;
 
+import com.henrique.dscatalog.config.CacheConfig;
 import com.henrique.dscatalog.entities.User;
 import com.henrique.dscatalog.projections.UserDetailsProjection;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
@@ -12,6 +17,8 @@ import java.util.List;
 public interface UserRepository extends JpaRepository<User, Long> {
     User findByEmail(String email);
 
+    Slice<User> findSliceBy(Pageable pageable);
+
     @Query(nativeQuery = true, value = """
 			SELECT tb_user.email AS username, tb_user.password, tb_role.id AS roleId, tb_role.authority
 			FROM tb_user
@@ -19,5 +26,11 @@ public interface UserRepository extends JpaRepository<User, Long> {
 			INNER JOIN tb_role ON tb_role.id = tb_user_role.role_id
 			WHERE tb_user.email = :email
 		""")
+    // Unknown emails are not cached, so a user created meanwhile can log in straight away
+    @Cacheable(value = CacheConfig.USER_DETAILS, key = "#email", unless = "#result.isEmpty()")
     List<UserDetailsProjection> searchUserAndRolesByEmail(String email);
+
+    @Modifying
+    @Query("UPDATE User obj SET obj.password = :newPassword WHERE obj.email = :email AND obj.password = :oldPassword")
+    int updatePassword(String email, String oldPassword, String newPassword);
 }
@@ -1,15 +1,19 @@
 package com.henrique.dscatalog.resources;
 
 import com.henrique.dscatalog.dto.CategoryDTO;
+import com.henrique.dscatalog.dto.VersionDTO;
 import com.henrique.dscatalog.services.CategoryService;
+import com.henrique.dscatalog.services.CategorySnapshot;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.net.URI;
-import java.util.List;
+import java.nio.charset.StandardCharsets;
 
 @RestController
 @RequestMapping("categories")
@@ -18,14 +22,28 @@ public class CategoryResource {
     private CategoryService categoryService;
 
     @GetMapping
-    public ResponseEntity<List<CategoryDTO>> findAll(){
-        List<CategoryDTO> list = categoryService.findAll();
+    public ResponseEntity<byte[]> findAll(WebRequest request){
+        VersionDTO version = categoryService.findAllVersion();
+        if (request.checkNotModified(version.getEtag(), version.getLastModified())) {
+            return null;
+        }
 
-        return ResponseEntity.ok(list);
+        // May be newer than the version above when that came from a lagging replica
+        CategorySnapshot snapshot = categoryService.findAllSnapshot();
+        return ResponseEntity.ok()
+                .eTag(snapshot.getEtag())
+                .lastModified(snapshot.getLastModified())
+                .contentType(new MediaType(MediaType.APPLICATION_JSON, StandardCharsets.UTF_8))
+                .body(snapshot.getJson());
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<CategoryDTO> findById(@PathVariable Long id){
+    public ResponseEntity<CategoryDTO> findById(@PathVariable Long id, WebRequest request){
+        VersionDTO version = categoryService.findVersion(id);
+        if (request.checkNotModified(version.getEtag(), version.getLastModified())) {
+            return null;
+        }
+
         CategoryDTO list = categoryService.findById(id);
         return ResponseEntity.ok(list);
     }
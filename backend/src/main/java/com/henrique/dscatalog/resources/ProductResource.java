@@ -1,37 +1,145 @@
 package com.henrique.dscatalog.resources;
 
+import com.henrique.dscatalog.config.StreamingTaskExecutor;
+import com.henrique.dscatalog.dto.BatchResultDTO;
+import com.henrique.dscatalog.dto.CursorPageDTO;
+import com.henrique.dscatalog.dto.FacetedPageDTO;
+import com.henrique.dscatalog.dto.ImportResultDTO;
 import com.henrique.dscatalog.dto.ProductDTO;
-import com.henrique.dscatalog.projections.ProductProjection;
+import com.henrique.dscatalog.dto.SliceDTO;
+import com.henrique.dscatalog.dto.VersionDTO;
+import com.henrique.dscatalog.services.CatalogFormat;
+import com.henrique.dscatalog.services.ProductExportService;
+import com.henrique.dscatalog.services.ProductImportService;
 import com.henrique.dscatalog.services.ProductService;
+import com.henrique.dscatalog.services.ProductStreamService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.util.List;
 
 @RestController
 @RequestMapping("products")
 public class ProductResource {
     @Autowired
     private ProductService productService;
+    @Autowired
+    private ProductExportService productExportService;
+    @Autowired
+    private ProductImportService productImportService;
+    @Autowired
+    private ProductStreamService productStreamService;
 
     @GetMapping
     public ResponseEntity<Page<ProductDTO>> findAll(
             @RequestParam(value = "name", defaultValue = "") String name,
             @RequestParam(value = "categoryId", defaultValue = "0") String categoryId,
-            Pageable pageable){
-        Page<ProductDTO> list = productService.findAllPaged(name, categoryId, pageable);
+            @RequestParam(value = "count", defaultValue = "exact") String count,
+            Pageable pageable,
+            WebRequest request){
+        if (isCatalogNotModified(request)) {
+            return null;
+        }
+
+        Page<ProductDTO> list = "cached".equals(count)
+                ? productService.findAllPagedWithCachedCount(name, categoryId, pageable)
+                : productService.findAllPaged(name, categoryId, pageable);
+
+        return ResponseEntity.ok(list);
+    }
+
+    @GetMapping(params = "count=none")
+    public ResponseEntity<SliceDTO<ProductDTO>> findAllSliced(
+            @RequestParam(value = "name", defaultValue = "") String name,
+            @RequestParam(value = "categoryId", defaultValue = "0") String categoryId,
+            Pageable pageable,
+            WebRequest request){
+        if (isCatalogNotModified(request)) {
+            return null;
+        }
+
+        SliceDTO<ProductDTO> list = productService.findAllSliced(name, categoryId, pageable);
+
+        return ResponseEntity.ok(list);
+    }
+
+    @GetMapping("/faceted")
+    public ResponseEntity<FacetedPageDTO<ProductDTO>> findAllFaceted(
+            @RequestParam(value = "name", defaultValue = "") String name,
+            @RequestParam(value = "categoryId", defaultValue = "0") String categoryId,
+            Pageable pageable,
+            WebRequest request){
+        if (isCatalogNotModified(request)) {
+            return null;
+        }
+
+        FacetedPageDTO<ProductDTO> list = productService.findAllFaceted(name, categoryId, pageable);
 
         return ResponseEntity.ok(list);
     }
 
+    @GetMapping("/scroll")
+    public ResponseEntity<CursorPageDTO<ProductDTO>> findAllByCursor(
+            @RequestParam(value = "name", defaultValue = "") String name,
+            @RequestParam(value = "categoryId", defaultValue = "0") String categoryId,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "before", required = false) String before,
+            Pageable pageable,
+            WebRequest request){
+        if (isCatalogNotModified(request)) {
+            return null;
+        }
+
+        CursorPageDTO<ProductDTO> list = productService.findAllByCursor(name, categoryId, after, before, pageable);
+
+        return ResponseEntity.ok(list);
+    }
+
+    @GetMapping(value = "/stream", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> stream(
+            @RequestParam(value = "name", defaultValue = "") String name,
+            @RequestParam(value = "categoryId", defaultValue = "0") String categoryId){
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(out -> productStreamService.stream(name, categoryId, out));
+    }
+
+    @PreAuthorize("hasAnyRole('ROLE_ADMIN', 'ROLE_OPERATOR')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(value = "format", defaultValue = "NDJSON") CatalogFormat format,
+            HttpServletRequest request){
+        // Holds a database cursor until the last row is written, so it runs on the bounded export pool
+        request.setAttribute(StreamingTaskExecutor.EXPORT_ATTRIBUTE, Boolean.TRUE);
+        String filename = "products." + format.name().toLowerCase();
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(out -> productExportService.export(format, out));
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<ProductDTO> findById(@PathVariable Long id){
+    public ResponseEntity<ProductDTO> findById(@PathVariable Long id, WebRequest request){
+        VersionDTO version = productService.findVersion(id);
+        if (request.checkNotModified(version.getEtag(), version.getLastModified())) {
+            return null;
+        }
+
         ProductDTO list = productService.findById(id);
         return ResponseEntity.ok(list);
     }
@@ -50,6 +158,24 @@ public class ProductResource {
         return ResponseEntity.created(uri).body(dto);
     }
 
+    @PreAuthorize("hasAnyRole('ROLE_ADMIN', 'ROLE_OPERATOR')")
+    @PostMapping("/batch")
+    public ResponseEntity<BatchResultDTO> saveAll(@RequestBody List<ProductDTO> dtos){
+        BatchResultDTO result = productService.saveAll(dtos);
+
+        return ResponseEntity.ok(result);
+    }
+
+    @PreAuthorize("hasAnyRole('ROLE_ADMIN', 'ROLE_OPERATOR')")
+    @PostMapping("/import")
+    public ResponseEntity<ImportResultDTO> importProducts(
+            @RequestParam(value = "format", defaultValue = "NDJSON") CatalogFormat format,
+            InputStream body) throws IOException {
+        ImportResultDTO result = productImportService.importProducts(format, body);
+
+        return ResponseEntity.ok(result);
+    }
+
     @PreAuthorize("hasAnyRole('ROLE_ADMIN', 'ROLE_OPERATOR')")
     @PutMapping("/{id}")
     public ResponseEntity<ProductDTO> update(@PathVariable Long id, @Valid @RequestBody ProductDTO dto){
@@ -65,4 +191,10 @@ public class ProductResource {
 
         return ResponseEntity.noContent().build();
     }
+
+    // Checked before running the search, so a client holding the current version skips it entirely
+    private boolean isCatalogNotModified(WebRequest request){
+        VersionDTO version = productService.findCatalogVersion();
+        return request.checkNotModified(version.getEtag(), version.getLastModified());
+    }
 }
@@ -1,5 +1,6 @@
 package com.henrique.dscatalog.resources;
 
+import com.henrique.dscatalog.dto.SliceDTO;
 import com.henrique.dscatalog.dto.UserDTO;
 import com.henrique.dscatalog.dto.UserInsertDTO;
 import com.henrique.dscatalog.dto.UserUpdateDTO;
@@ -28,6 +29,15 @@ public class UserResource {
 
         return ResponseEntity.ok(list);
     }
+
+    @PreAuthorize("hasAnyRole('ROLE_ADMIN')")
+    @GetMapping(params = "count=none")
+    public ResponseEntity<SliceDTO<UserDTO>> findAllSliced(Pageable pageable){
+        SliceDTO<UserDTO> list = userService.findAllSliced(pageable);
+
+        return ResponseEntity.ok(list);
+    }
+
     @PreAuthorize("hasAnyRole('ROLE_ADMIN')")
     @GetMapping("/{id}")
     public ResponseEntity<UserDTO> findById(@PathVariable Long id){
@@ -2,9 +2,12 @@ package com.henrique.dscatalog.resources.exceptions;
 
 import com.henrique.dscatalog.services.exceptions.DatabaseException;
 import com.henrique.dscatalog.services.exceptions.EmailException;
+import com.henrique.dscatalog.services.exceptions.InvalidCursorException;
 import com.henrique.dscatalog.services.exceptions.ResourceNotFoundException;
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -71,4 +74,28 @@ public class ResourceExceptionHandler {
         err.setPath(request.getRequestURI());
         return  ResponseEntity.status(status).body(err);
     }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<StandardError> invalidCursor(InvalidCursorException e, HttpServletRequest request){
+        HttpStatus status = HttpStatus.BAD_REQUEST;
+        StandardError err = new StandardError();
+        err.setTimestamp(Instant.now());
+        err.setStatus(status.value());
+        err.setError("Invalid cursor");
+        err.setMessage(e.getMessage());
+        err.setPath(request.getRequestURI());
+        return  ResponseEntity.status(status).body(err);
+    }
+
+    @ExceptionHandler(TaskRejectedException.class)
+    public ResponseEntity<StandardError> taskRejected(TaskRejectedException e, HttpServletRequest request){
+        HttpStatus status = HttpStatus.SERVICE_UNAVAILABLE;
+        StandardError err = new StandardError();
+        err.setTimestamp(Instant.now());
+        err.setStatus(status.value());
+        err.setError("Too many concurrent downloads");
+        err.setMessage("Try again later");
+        err.setPath(request.getRequestURI());
+        return  ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON).body(err);
+    }
 }
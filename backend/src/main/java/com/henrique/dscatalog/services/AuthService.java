@@ -6,9 +6,11 @@ import com.henrique.dscatalog.entities.PasswordRecover;
 import com.henrique.dscatalog.entities.User;
 import com.henrique.dscatalog.repositories.PasswordRecoverRepository;
 import com.henrique.dscatalog.repositories.UserRepository;
+import com.henrique.dscatalog.services.events.UserChangedEvent;
 import com.henrique.dscatalog.services.exceptions.ResourceNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -34,9 +36,11 @@ public class AuthService {
     @Autowired
     private PasswordRecoverRepository passwordRecoverRepository;
     @Autowired
-    private EmailService emailService;
+    private EmailOutboxService emailOutboxService;
     @Autowired
     private PasswordEncoder passwordEncoder;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public void createRecoverToken(EmailDTO body) {
@@ -56,7 +60,7 @@ public class AuthService {
         String text = "Acesse o link para definir uma nova senha\n\n"
                 + recoverUri + token + ". Validade de " + tokenMinutes + " minutos";
 
-        emailService.sendEmail(body.getEmail(), "Recuperação de senha", text);
+        emailOutboxService.enqueue(body.getEmail(), "Recuperação de senha", text);
     }
 
     @Transactional
@@ -69,6 +73,7 @@ public class AuthService {
         User user = userRepository.findByEmail(result.get(0).getEmail());
         user.setPassword(passwordEncoder.encode(body.getPassword()));
         user = userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(user.getEmail()));
     }
 
     protected User authenticated() {
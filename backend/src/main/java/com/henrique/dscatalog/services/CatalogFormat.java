@@ -0,0 +1,16 @@
+package com.henrique.dscatalog.services;
+
+public enum CatalogFormat {
+    NDJSON("application/x-ndjson"),
+    CSV("text/csv;charset=UTF-8");
+
+    private final String contentType;
+
+    CatalogFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+}
@@ -0,0 +1,58 @@
+package com.henrique.dscatalog.services;
+
+import com.henrique.dscatalog.projections.VersionProjection;
+import com.henrique.dscatalog.repositories.CatalogVersionRepository;
+import com.henrique.dscatalog.services.events.CatalogVersionChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+
+/**
+ * Bumps tb_catalog_version for catalog writes. Every writer updates the same row, so the update
+ * is issued once per transaction right before it commits: the row lock is then held for the
+ * commit only, not for the whole write, and still lands atomically with the data it describes.
+ * Once it commits, the version it reached is published as a {@link CatalogVersionChangedEvent}.
+ */
+@Component
+public class CatalogVersionTracker {
+    @Autowired
+    CatalogVersionRepository catalogVersionRepository;
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+
+    public void changed() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || !TransactionSynchronizationManager.isActualTransactionActive()) {
+            catalogVersionRepository.increment(Instant.now());
+            return;
+        }
+
+        boolean pending = TransactionSynchronizationManager.getSynchronizations().stream()
+                .anyMatch(IncrementBeforeCommit.class::isInstance);
+        if (!pending) {
+            TransactionSynchronizationManager.registerSynchronization(new IncrementBeforeCommit());
+        }
+    }
+
+    private class IncrementBeforeCommit implements TransactionSynchronization {
+        private Long version;
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            catalogVersionRepository.increment(Instant.now());
+            // The row stays locked until commit, so this is exactly the value this transaction wrote
+            version = catalogVersionRepository.findCurrent().map(VersionProjection::getVersion).orElse(null);
+        }
+
+        @Override
+        public void afterCommit() {
+            if (version != null) {
+                eventPublisher.publishEvent(new CatalogVersionChangedEvent(version));
+            }
+        }
+    }
+}
@@ -1,28 +1,84 @@
 package com.henrique.dscatalog.services;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.henrique.dscatalog.config.datasource.ReadWriteRoutingDataSource;
 import com.henrique.dscatalog.dto.CategoryDTO;
+import com.henrique.dscatalog.dto.VersionDTO;
 import com.henrique.dscatalog.entities.Category;
+import com.henrique.dscatalog.projections.VersionProjection;
+import com.henrique.dscatalog.repositories.CatalogVersionRepository;
 import com.henrique.dscatalog.repositories.CategoryRepository;
+import com.henrique.dscatalog.services.events.CategoryChangedEvent;
 import com.henrique.dscatalog.services.exceptions.DatabaseException;
 import com.henrique.dscatalog.services.exceptions.ResourceNotFoundException;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 public class CategoryService {
     @Autowired
     CategoryRepository categoryRepository;
+    @Autowired
+    CatalogVersionRepository catalogVersionRepository;
+    @Autowired
+    CatalogVersionTracker catalogVersionTracker;
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+    @Autowired
+    ObjectMapper objectMapper;
+
+    // Replaced as a whole on every change, so a snapshot built against an older state is never published
+    private final AtomicReference<SnapshotState> state = new AtomicReference<>(new SnapshotState(0, -1, null));
 
-    @Transactional(readOnly = true)
     public List<CategoryDTO> findAll(){
-        List<Category> result = categoryRepository.findAll();
-        return result.stream().map(CategoryDTO::new).toList();
+        return findAllSnapshot().getCategories();
+    }
+
+    // Checked against tb_catalog_version on every call, so changes made on other nodes are picked up
+    // too; only the version row is read while the snapshot is current
+    public CategorySnapshot findAllSnapshot(){
+        long version = findCurrentVersion().getVersion();
+        SnapshotState current = state.get();
+        // A lagging replica may report an older version than the primary the snapshot was loaded from
+        if (current.snapshot() != null && current.version() >= version) {
+            return current.snapshot();
+        }
+
+        SnapshotState built = ReadWriteRoutingDataSource.readFromPrimary(() -> {
+            // Read the version first: a change committing during the load bumps it past this value
+            VersionProjection builtAt = findCurrentVersion();
+            return new SnapshotState(current.generation(), builtAt.getVersion(), buildSnapshot(builtAt));
+        });
+        // A local commit that landed while building may not be reflected, so leave it to the next reader
+        state.compareAndSet(current, built);
+        return built.snapshot();
+    }
+
+    // Every category write bumps the catalog version, so a client holding it can skip the list entirely
+    public VersionDTO findAllVersion(){
+        return new VersionDTO("categories", findCurrentVersion());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event){
+        state.updateAndGet(current -> new SnapshotState(current.generation() + 1, -1, null));
+    }
+
+    @Transactional(readOnly = true)
+    public VersionDTO findVersion(Long id){
+        return categoryRepository.findVersionById(id)
+                .map(v -> new VersionDTO("category-" + id, v))
+                .orElseThrow(() -> new ResourceNotFoundException("Entity not found"));
     }
 
     @Transactional(readOnly = true)
@@ -38,6 +94,8 @@ public class CategoryService {
         entity.setName(dto.getName());
 
         entity = categoryRepository.save(entity);
+        catalogVersionTracker.changed();
+        eventPublisher.publishEvent(new CategoryChangedEvent(entity.getId()));
 
         return  new CategoryDTO(entity);
     }
@@ -49,6 +107,8 @@ public class CategoryService {
             entity.setName(dto.getName());
 
             entity = categoryRepository.save(entity);
+            catalogVersionTracker.changed();
+            eventPublisher.publishEvent(new CategoryChangedEvent(id));
 
             return  new CategoryDTO(entity);
         }catch (EntityNotFoundException e){
@@ -63,10 +123,31 @@ public class CategoryService {
         }
         try {
             categoryRepository.deleteById(id);
+            catalogVersionTracker.changed();
+            eventPublisher.publishEvent(new CategoryChangedEvent(id));
         }
         catch (DataIntegrityViolationException e) {
             throw new DatabaseException("Data integrity violation");
         }
     }
 
+    private VersionProjection findCurrentVersion() {
+        return catalogVersionRepository.findCurrent()
+                .orElseThrow(() -> new IllegalStateException("Catalog version row is missing"));
+    }
+
+    // Served to everyone until the catalog version moves, so callers load it from the primary
+    private CategorySnapshot buildSnapshot(VersionProjection version) {
+        List<CategoryDTO> categories = categoryRepository.findAll().stream().map(CategoryDTO::new).toList();
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(categories);
+            return new CategorySnapshot(categories, json, new VersionDTO("categories", version));
+        }
+        catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record SnapshotState(long generation, long version, CategorySnapshot snapshot) {
+    }
 }
@@ -0,0 +1,40 @@
+package com.henrique.dscatalog.services;
+
+import com.henrique.dscatalog.dto.CategoryDTO;
+import com.henrique.dscatalog.dto.VersionDTO;
+
+import java.util.List;
+
+/**
+ * Immutable view of the whole category list together with its serialized JSON body and the
+ * catalog version it was loaded at, so unchanged reads skip both the database and Jackson.
+ */
+public class CategorySnapshot {
+    private final List<CategoryDTO> categories;
+    private final byte[] json;
+    private final String etag;
+    private final long lastModified;
+
+    public CategorySnapshot(List<CategoryDTO> categories, byte[] json, VersionDTO version) {
+        this.categories = List.copyOf(categories);
+        this.json = json;
+        this.etag = version.getEtag();
+        this.lastModified = version.getLastModified();
+    }
+
+    public List<CategoryDTO> getCategories() {
+        return categories;
+    }
+
+    public byte[] getJson() {
+        return json;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+}
@@ -0,0 +1,58 @@
+package com.henrique.dscatalog.services;
+
+import com.henrique.dscatalog.entities.EmailOutbox;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@Component
+public class EmailOutboxDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(EmailOutboxDispatcher.class);
+
+    @Value("${email.outbox.batch-size}")
+    private Integer batchSize;
+
+    @Autowired
+    private EmailOutboxService emailOutboxService;
+    @Autowired
+    private EmailService emailService;
+
+    @Scheduled(fixedDelayString = "${email.outbox.poll-ms}")
+    public void dispatch() {
+        List<EmailOutbox> batch = emailOutboxService.claimBatch(batchSize);
+        while (!batch.isEmpty()) {
+            send(batch);
+            if (batch.size() < batchSize) {
+                return;
+            }
+            batch = emailOutboxService.claimBatch(batchSize);
+        }
+    }
+
+    private void send(List<EmailOutbox> batch) {
+        List<SimpleMailMessage> messages = batch.stream()
+                .map(email -> emailService.createMessage(email.getRecipient(), email.getSubject(), email.getBody()))
+                .toList();
+        Map<Object, Exception> failures = emailService.sendEmails(messages);
+
+        List<Long> sent = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            Exception failure = failures.get(messages.get(i));
+            if (failure == null) {
+                sent.add(batch.get(i).getId());
+            } else {
+                logger.warn("Email {} failed on attempt {}: {}", batch.get(i).getId(), batch.get(i).getAttempts(), failure.getMessage());
+                emailOutboxService.markFailed(batch.get(i).getId(), failure.getMessage());
+            }
+        }
+        emailOutboxService.markSent(sent);
+    }
+}
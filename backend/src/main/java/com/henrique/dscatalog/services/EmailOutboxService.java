@@ -0,0 +1,67 @@
+package com.henrique.dscatalog.services;
+
+import com.henrique.dscatalog.entities.EmailOutbox;
+import com.henrique.dscatalog.repositories.EmailOutboxRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Transactional outbox for outgoing email. Callers enqueue inside their own transaction, so the
+ * message exists exactly when the data it refers to was committed; {@link EmailOutboxDispatcher}
+ * sends it later without holding a connection or a request thread.
+ */
+@Service
+public class EmailOutboxService {
+    @Value("${email.outbox.max-attempts}")
+    private Integer maxAttempts;
+    @Value("${email.outbox.backoff-seconds}")
+    private Long backoffSeconds;
+    @Value("${email.outbox.max-backoff-seconds}")
+    private Long maxBackoffSeconds;
+    @Value("${email.outbox.lease-seconds}")
+    private Long leaseSeconds;
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Transactional
+    public void enqueue(String to, String subject, String body) {
+        emailOutboxRepository.save(new EmailOutbox(to, subject, body));
+    }
+
+    // Leasing the rows keeps the claim short: other instances skip them until the lease runs out
+    @Transactional
+    public List<EmailOutbox> claimBatch(int batchSize) {
+        Instant now = Instant.now();
+        List<EmailOutbox> batch = emailOutboxRepository.searchDue(maxAttempts, now, PageRequest.of(0, batchSize));
+        for (EmailOutbox email : batch) {
+            email.setAttempts(email.getAttempts() + 1);
+            email.setNextAttemptAt(now.plusSeconds(leaseSeconds));
+        }
+        return batch;
+    }
+
+    @Transactional
+    public void markSent(List<Long> ids) {
+        Instant now = Instant.now();
+        for (EmailOutbox email : emailOutboxRepository.findAllById(ids)) {
+            email.setSentAt(now);
+            email.setLastError(null);
+        }
+    }
+
+    @Transactional
+    public void markFailed(Long id, String error) {
+        emailOutboxRepository.findById(id).ifPresent(email -> {
+            long delay = Math.min(maxBackoffSeconds, backoffSeconds << Math.min(email.getAttempts() - 1, 20));
+            email.setNextAttemptAt(Instant.now().plusSeconds(delay));
+            email.setLastError(error == null ? null : error.substring(0, Math.min(error.length(), 255)));
+        });
+    }
+}
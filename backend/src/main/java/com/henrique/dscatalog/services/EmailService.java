@@ -4,10 +4,15 @@ import com.henrique.dscatalog.services.exceptions.EmailException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 @Service
 public class EmailService {
 
@@ -19,15 +24,44 @@ public class EmailService {
 
     public void sendEmail(String to, String subject, String body) {
         try{
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setFrom(emailFrom);
-            message.setTo(to);
-            message.setSubject(subject);
-            message.setText(body);
-            emailSender.send(message);
+            emailSender.send(createMessage(to, subject, body));
         }
         catch (MailException e){
             throw new EmailException("Failed to send email");
         }
     }
+
+    public SimpleMailMessage createMessage(String to, String subject, String body) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom(emailFrom);
+        message.setTo(to);
+        message.setSubject(subject);
+        message.setText(body);
+        return message;
+    }
+
+    /**
+     * Sends all messages over a single SMTP connection and returns the ones that failed, keyed by message.
+     */
+    public Map<Object, Exception> sendEmails(List<SimpleMailMessage> messages) {
+        try{
+            emailSender.send(messages.toArray(SimpleMailMessage[]::new));
+            return Map.of();
+        }
+        catch (MailSendException e){
+            if (!e.getFailedMessages().isEmpty()) {
+                return e.getFailedMessages();
+            }
+            return allFailed(messages, e);
+        }
+        catch (MailException e){
+            return allFailed(messages, e);
+        }
+    }
+
+    private Map<Object, Exception> allFailed(List<SimpleMailMessage> messages, Exception e) {
+        Map<Object, Exception> failures = new HashMap<>();
+        messages.forEach(message -> failures.put(message, e));
+        return failures;
+    }
 }
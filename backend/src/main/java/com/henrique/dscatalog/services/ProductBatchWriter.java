@@ -0,0 +1,132 @@
+package com.henrique.dscatalog.services;
+
+import com.henrique.dscatalog.dto.BatchResultDTO;
+import com.henrique.dscatalog.dto.CategoryDTO;
+import com.henrique.dscatalog.dto.ProductDTO;
+import com.henrique.dscatalog.entities.Category;
+import com.henrique.dscatalog.entities.Product;
+import com.henrique.dscatalog.repositories.CategoryRepository;
+import com.henrique.dscatalog.repositories.ProductRepository;
+import com.henrique.dscatalog.resources.exceptions.FieldMessage;
+import com.henrique.dscatalog.services.events.ProductChangedEvent;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Writes one chunk of a bulk request in its own transaction. Categories and existing products are
+ * loaded with one query each, and the inserts go out as JDBC batches at flush.
+ */
+@Service
+public class ProductBatchWriter {
+    @Autowired
+    ProductRepository productRepository;
+    @Autowired
+    CategoryRepository categoryRepository;
+    @Autowired
+    CatalogVersionTracker catalogVersionTracker;
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+    @Autowired
+    Validator validator;
+
+    @Transactional
+    public BatchResultDTO write(List<ProductDTO> items, int offset) {
+        BatchResultDTO result = new BatchResultDTO();
+        Map<Long, Category> categories = findCategories(items);
+        Map<Long, Product> existing = findExisting(items);
+
+        List<Product> entities = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            ProductDTO dto = items.get(i);
+            List<FieldMessage> errors = validate(dto, categories, existing);
+            if (!errors.isEmpty()) {
+                result.addError(offset + i, dto.getId(), errors);
+                continue;
+            }
+
+            Product entity;
+            if (dto.getId() == null) {
+                entity = new Product();
+                result.addInserted();
+            } else {
+                entity = existing.get(dto.getId());
+                result.addUpdated();
+            }
+            copyDtoToEntity(dto, entity, categories);
+            entities.add(entity);
+        }
+
+        if (entities.isEmpty()) {
+            return result;
+        }
+
+        productRepository.saveAll(entities);
+        productRepository.flush();
+        catalogVersionTracker.changed();
+        for (Product entity : entities) {
+            eventPublisher.publishEvent(new ProductChangedEvent(entity.getId(), entity));
+        }
+
+        return result;
+    }
+
+    private Map<Long, Category> findCategories(List<ProductDTO> items) {
+        List<Long> ids = items.stream()
+                .flatMap(dto -> dto.getCategories().stream())
+                .map(CategoryDTO::getId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        return categoryRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Category::getId, Function.identity()));
+    }
+
+    private Map<Long, Product> findExisting(List<ProductDTO> items) {
+        List<Long> ids = items.stream().map(ProductDTO::getId).filter(Objects::nonNull).distinct().toList();
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        return productRepository.findAllWithCategoriesByIdIn(ids).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+    }
+
+    private List<FieldMessage> validate(ProductDTO dto, Map<Long, Category> categories, Map<Long, Product> existing) {
+        List<FieldMessage> errors = new ArrayList<>();
+        for (ConstraintViolation<ProductDTO> violation : validator.validate(dto)) {
+            errors.add(new FieldMessage(violation.getPropertyPath().toString(), violation.getMessage()));
+        }
+        if (dto.getId() != null && !existing.containsKey(dto.getId())) {
+            errors.add(new FieldMessage("id", "Id not found " + dto.getId()));
+        }
+        for (CategoryDTO catDto : dto.getCategories()) {
+            if (!categories.containsKey(catDto.getId())) {
+                errors.add(new FieldMessage("categories", "Category not found " + (catDto.getId() != null ? catDto.getId() : catDto.getName())));
+            }
+        }
+        return errors;
+    }
+
+    private void copyDtoToEntity(ProductDTO dto, Product entity, Map<Long, Category> categories) {
+        entity.setName(dto.getName());
+        entity.setDescription(dto.getDescription());
+        entity.setPrice(dto.getPrice());
+        entity.setImgUrl(dto.getImgUrl());
+        entity.setDate(dto.getDate());
+
+        entity.getCategories().clear();
+        for (CategoryDTO catDto : dto.getCategories()) {
+            entity.getCategories().add(categories.get(catDto.getId()));
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.henrique.dscatalog.services;
+
+import com.henrique.dscatalog.config.CacheConfig;
+import com.henrique.dscatalog.services.events.CategoryChangedEvent;
+import com.henrique.dscatalog.services.events.ProductChangedEvent;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+@Component
+public class ProductCacheEvictionListener {
+
+    // Evict once the change is committed, otherwise a concurrent findById could re-cache the old row
+    @CacheEvict(value = CacheConfig.PRODUCTS, key = "#event.id")
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+    }
+
+    // Same reason for the counts: evicting before commit let a count=cached read re-cache the old total
+    @CacheEvict(value = CacheConfig.PRODUCT_COUNTS, allEntries = true)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductCountChanged(ProductChangedEvent event) {
+    }
+
+    // Cached products carry their category names, and a category change can touch any of them
+    @CacheEvict(value = CacheConfig.PRODUCTS, allEntries = true)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+    }
+}
@@ -0,0 +1,81 @@
+package com.henrique.dscatalog.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.henrique.dscatalog.dto.CategoryDTO;
+import com.henrique.dscatalog.dto.ProductDTO;
+import com.henrique.dscatalog.projections.ProductSearchProjection;
+import com.henrique.dscatalog.repositories.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Writes the whole catalog row by row from a database cursor, so memory stays flat however
+ * large the export gets.
+ */
+@Service
+public class ProductExportService {
+    static final String CSV_HEADER = "id,name,description,price,imgUrl,date,categories";
+
+    @Autowired
+    ProductRepository productRepository;
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Transactional(readOnly = true)
+    public void export(CatalogFormat format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        if (format == CatalogFormat.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        try (Stream<ProductSearchProjection> products = productRepository.streamAllForExport()) {
+            products.map(ProductDTO::new).forEach(dto -> {
+                try {
+                    writer.write(format == CatalogFormat.CSV ? toCsv(dto) : objectMapper.writeValueAsString(dto));
+                    writer.write('\n');
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    private String toCsv(ProductDTO dto) {
+        String categories = dto.getCategories().stream().map(CategoryDTO::getName).collect(Collectors.joining("|"));
+        return String.join(",",
+                String.valueOf(dto.getId()),
+                csvField(dto.getName()),
+                csvField(dto.getDescription()),
+                dto.getPrice() == null ? "" : dto.getPrice().toString(),
+                csvField(dto.getImgUrl()),
+                dto.getDate() == null ? "" : dto.getDate().toString(),
+                csvField(categories));
+    }
+
+    private String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+}
@@ -0,0 +1,278 @@
+package com.henrique.dscatalog.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.henrique.dscatalog.dto.BatchResultDTO;
+import com.henrique.dscatalog.dto.CategoryDTO;
+import com.henrique.dscatalog.dto.ImportResultDTO;
+import com.henrique.dscatalog.dto.ProductDTO;
+import com.henrique.dscatalog.entities.Category;
+import com.henrique.dscatalog.repositories.CategoryRepository;
+import com.henrique.dscatalog.resources.exceptions.FieldMessage;
+import com.henrique.dscatalog.util.CsvReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads an upload row by row and hands it to the batch writer one chunk at a time, so memory is
+ * bounded by the chunk size. The upload is only read as fast as chunks commit.
+ */
+@Service
+public class ProductImportService {
+    private static final Logger logger = LoggerFactory.getLogger(ProductImportService.class);
+
+    @Value("${product-batch.chunk-size}")
+    private Integer chunkSize;
+    @Value("${product-import.max-errors}")
+    private Integer maxErrors;
+    @Value("${product-import.max-record-length}")
+    private Integer maxRecordLength;
+
+    @Autowired
+    ProductService productService;
+    @Autowired
+    CategoryRepository categoryRepository;
+    @Autowired
+    ObjectMapper objectMapper;
+
+    public ImportResultDTO importProducts(CatalogFormat format, InputStream in) throws IOException {
+        long startedAt = System.nanoTime();
+        Map<String, Long> categoryIds = findCategoryIds();
+        ImportResultDTO result = new ImportResultDTO();
+        result.setMaxErrors(maxErrors);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        RowReader rows = format == CatalogFormat.CSV
+                ? new CsvRowReader(new CsvReader(reader, maxRecordLength))
+                : new NdjsonRowReader(reader);
+
+        List<ProductDTO> chunk = new ArrayList<>(chunkSize);
+        List<Integer> rowIndexes = new ArrayList<>(chunkSize);
+        for (int index = 0; ; index++) {
+            Row row;
+            try {
+                row = rows.next();
+            }
+            catch (CsvReader.MalformedRecordException e) {
+                // Rows already read are still saved, and the result reports where the upload broke off
+                result.addError(index, null, List.of(new FieldMessage(null, e.getMessage() + ", import stopped")));
+                break;
+            }
+            if (row == null) {
+                break;
+            }
+            if (row.errors != null) {
+                result.addError(index, null, row.errors);
+                continue;
+            }
+
+            resolveCategories(row.product, categoryIds);
+            chunk.add(row.product);
+            rowIndexes.add(index);
+            if (chunk.size() == chunkSize) {
+                flushChunk(chunk, rowIndexes, result, startedAt);
+            }
+        }
+        flushChunk(chunk, rowIndexes, result, startedAt);
+
+        result.setElapsedMillis((System.nanoTime() - startedAt) / 1_000_000);
+        logger.info("Product import finished: {} rows ({} inserted, {} updated, {} failed) in {} ms, {} rows/s",
+                result.getProcessed(), result.getInserted(), result.getUpdated(), result.getFailed(),
+                result.getElapsedMillis(), result.getRowsPerSecond());
+        return result;
+    }
+
+    private void flushChunk(List<ProductDTO> chunk, List<Integer> rowIndexes, ImportResultDTO result, long startedAt) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        BatchResultDTO chunkResult = productService.saveChunk(chunk, 0);
+        List<Integer> indexes = List.copyOf(rowIndexes);
+        result.merge(chunkResult, indexes::get);
+        chunk.clear();
+        rowIndexes.clear();
+
+        result.setElapsedMillis((System.nanoTime() - startedAt) / 1_000_000);
+        logger.info("Product import progress: {} rows processed, {} failed, {} rows/s",
+                result.getProcessed(), result.getFailed(), result.getRowsPerSecond());
+    }
+
+    // The category table is small, so it is read once per upload instead of once per row
+    private Map<String, Long> findCategoryIds() {
+        Map<String, Long> ids = new HashMap<>();
+        for (Category category : categoryRepository.findAll()) {
+            ids.put(category.getName().toLowerCase(Locale.ROOT), category.getId());
+        }
+        return ids;
+    }
+
+    private void resolveCategories(ProductDTO dto, Map<String, Long> categoryIds) {
+        for (CategoryDTO category : dto.getCategories()) {
+            if (category.getId() == null && category.getName() != null) {
+                category.setId(categoryIds.get(category.getName().toLowerCase(Locale.ROOT)));
+            }
+        }
+    }
+
+    private static class Row {
+        private final ProductDTO product;
+        private final List<FieldMessage> errors;
+
+        private Row(ProductDTO product, List<FieldMessage> errors) {
+            this.product = product;
+            this.errors = errors;
+        }
+    }
+
+    private interface RowReader {
+        // Returns null at the end of the input
+        Row next() throws IOException;
+    }
+
+    private class NdjsonRowReader implements RowReader {
+        private final BufferedReader reader;
+
+        private NdjsonRowReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public Row next() throws IOException {
+            String line = readLine();
+            while (line != null && line.isBlank()) {
+                line = readLine();
+            }
+            if (line == null) {
+                return null;
+            }
+            if (line.length() > maxRecordLength) {
+                return new Row(null, List.of(new FieldMessage(null, "Record exceeds " + maxRecordLength + " characters")));
+            }
+
+            try {
+                return new Row(objectMapper.readValue(line, ProductDTO.class), null);
+            }
+            catch (JsonProcessingException e) {
+                return new Row(null, List.of(new FieldMessage(null, "Malformed JSON: " + e.getOriginalMessage())));
+            }
+        }
+
+        // Unlike readLine, stops buffering past the limit; an oversized line comes back one character
+        // too long so the caller can report it, and the rest of it is skipped
+        private String readLine() throws IOException {
+            int c = reader.read();
+            if (c == -1) {
+                return null;
+            }
+
+            StringBuilder line = new StringBuilder();
+            for (; c != -1 && c != '\n'; c = reader.read()) {
+                if (line.length() <= maxRecordLength) {
+                    line.append((char) c);
+                }
+            }
+            if (!line.isEmpty() && line.charAt(line.length() - 1) == '\r') {
+                line.setLength(line.length() - 1);
+            }
+            return line.toString();
+        }
+    }
+
+    private static class CsvRowReader implements RowReader {
+        private final CsvReader reader;
+        private Map<String, Integer> columns;
+
+        private CsvRowReader(CsvReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public Row next() throws IOException {
+            if (columns == null) {
+                List<String> header = reader.readRecord();
+                if (header == null) {
+                    return null;
+                }
+                columns = new HashMap<>();
+                for (int i = 0; i < header.size(); i++) {
+                    columns.put(header.get(i).trim(), i);
+                }
+            }
+
+            List<String> record = reader.readRecord();
+            while (record != null && record.size() == 1 && record.get(0).isBlank()) {
+                record = reader.readRecord();
+            }
+            if (record == null) {
+                return null;
+            }
+
+            ProductDTO dto = new ProductDTO();
+            List<FieldMessage> errors = new ArrayList<>();
+            try {
+                String id = field(record, "id");
+                dto.setId(id == null ? null : Long.parseLong(id));
+            }
+            catch (NumberFormatException e) {
+                errors.add(new FieldMessage("id", "Invalid number"));
+            }
+            dto.setName(field(record, "name"));
+            dto.setDescription(field(record, "description"));
+            try {
+                String price = field(record, "price");
+                dto.setPrice(price == null ? null : Double.parseDouble(price));
+            }
+            catch (NumberFormatException e) {
+                errors.add(new FieldMessage("price", "Invalid number"));
+            }
+            dto.setImgUrl(field(record, "imgUrl"));
+            try {
+                String date = field(record, "date");
+                dto.setDate(date == null ? null : Instant.parse(date));
+            }
+            catch (DateTimeParseException e) {
+                errors.add(new FieldMessage("date", "Invalid date"));
+            }
+
+            // Categories are '|' separated ids or names, matching the export
+            String categories = field(record, "categories");
+            if (categories != null) {
+                for (String category : categories.split("\\|")) {
+                    String value = category.trim();
+                    if (!value.isEmpty() && value.length() < 19 && value.chars().allMatch(Character::isDigit)) {
+                        dto.getCategories().add(new CategoryDTO(Long.parseLong(value), null));
+                    } else if (!value.isEmpty()) {
+                        dto.getCategories().add(new CategoryDTO(null, value));
+                    }
+                }
+            }
+
+            return errors.isEmpty() ? new Row(dto, null) : new Row(null, errors);
+        }
+
+        private String field(List<String> record, String column) {
+            Integer i = columns.get(column);
+            if (i == null || i >= record.size() || record.get(i).isBlank()) {
+                return null;
+            }
+            return record.get(i);
+        }
+    }
+}
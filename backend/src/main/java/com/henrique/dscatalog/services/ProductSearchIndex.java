@@ -0,0 +1,358 @@
+package com.henrique.dscatalog.services;
+
+import com.henrique.dscatalog.config.datasource.ReadWriteRoutingDataSource;
+import com.henrique.dscatalog.entities.Category;
+import com.henrique.dscatalog.entities.Product;
+import com.henrique.dscatalog.projections.VersionProjection;
+import com.henrique.dscatalog.repositories.CatalogVersionRepository;
+import com.henrique.dscatalog.repositories.ProductRepository;
+import com.henrique.dscatalog.services.events.CatalogVersionChangedEvent;
+import com.henrique.dscatalog.services.events.ProductChangedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory replacement for the name/category filter of ProductRepository.searchProducts.
+ * Names are split into trigrams with one bitmap per trigram, so a substring query intersects
+ * a few bitmaps and only checks the survivors, matching the LIKE '%name%' semantics.
+ * Bits are dense ordinals handed out per document rather than product ids, so the bitmaps stay
+ * sized to the number of indexed products however sparse the id sequence gets.
+ * <p>
+ * Writes on this node are applied as they commit, and the version they moved tb_catalog_version
+ * to is recorded when nothing else committed in between. Writes on other nodes are picked up by
+ * the periodic refresh, which rebuilds whenever the version has moved past the recorded one. It
+ * reloads everything rather than rows updated since, since deleted products leave no row behind.
+ * Until the first build finishes {@link #isReady()} is false and callers should use the database.
+ */
+@Component
+@ConditionalOnProperty(name = "product-search.engine", havingValue = "memory")
+public class ProductSearchIndex {
+    private static final Set<String> SORT_PROPERTIES = Set.of("id", "name", "price", "date");
+
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private CatalogVersionRepository catalogVersionRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Postings postings;
+    private Long builtAtVersion;
+
+    public static class Result {
+        private final List<Long> ids;
+        private final long total;
+
+        Result(List<Long> ids, long total) {
+            this.ids = ids;
+            this.total = total;
+        }
+
+        public List<Long> getIds() {
+            return ids;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+    }
+
+    private static class Document {
+        private final Long id;
+        private final String name;
+        private final String normalizedName;
+        private final Double price;
+        private final Instant date;
+        private final List<Long> categoryIds;
+
+        Document(Product product) {
+            id = product.getId();
+            name = product.getName();
+            normalizedName = normalize(product.getName());
+            price = product.getPrice();
+            date = product.getDate();
+            categoryIds = product.getCategories().stream().map(Category::getId).toList();
+        }
+    }
+
+    private static class Postings {
+        private final Map<Long, Integer> ordinals = new HashMap<>();
+        private final List<Document> documents = new ArrayList<>();
+        private final Deque<Integer> freeOrdinals = new ArrayDeque<>();
+        private final Map<String, BitSet> trigrams = new HashMap<>();
+        private final Map<Long, BitSet> categories = new HashMap<>();
+        private final BitSet all = new BitSet();
+
+        private void add(Product product) {
+            // Products without categories never show up in the SQL search either
+            if (product.getCategories().isEmpty()) {
+                return;
+            }
+
+            Document document = new Document(product);
+            int bit;
+            if (freeOrdinals.isEmpty()) {
+                bit = documents.size();
+                documents.add(document);
+            }
+            else {
+                bit = freeOrdinals.pop();
+                documents.set(bit, document);
+            }
+            ordinals.put(document.id, bit);
+            all.set(bit);
+            for (String trigram : trigramsOf(document.normalizedName)) {
+                trigrams.computeIfAbsent(trigram, key -> new BitSet()).set(bit);
+            }
+            for (Long categoryId : document.categoryIds) {
+                categories.computeIfAbsent(categoryId, key -> new BitSet()).set(bit);
+            }
+        }
+
+        private void remove(Long id) {
+            Integer bit = ordinals.remove(id);
+            if (bit == null) {
+                return;
+            }
+
+            Document document = documents.set(bit, null);
+            freeOrdinals.push(bit);
+            all.clear(bit);
+            for (String trigram : trigramsOf(document.normalizedName)) {
+                clear(trigrams, trigram, bit);
+            }
+            for (Long categoryId : document.categoryIds) {
+                clear(categories, categoryId, bit);
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        // Read the version first: a write committing during the load bumps it past this value
+        // and the next refresh loads again
+        Long version = currentVersion();
+        Postings rebuilt = new Postings();
+        ReadWriteRoutingDataSource.readFromPrimary(() -> productRepository.findAllWithCategories())
+                .forEach(rebuilt::add);
+
+        lock.writeLock().lock();
+        try {
+            postings = rebuilt;
+            builtAtVersion = version;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${product-search.refresh-ms}")
+    @Transactional(readOnly = true)
+    public void refresh() {
+        Long version = currentVersion();
+
+        lock.readLock().lock();
+        try {
+            if (postings != null && Objects.equals(version, builtAtVersion)) {
+                return;
+            }
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+        rebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            // Before the first build the load will see this write anyway
+            if (postings == null) {
+                return;
+            }
+            postings.remove(event.getId());
+            if (!event.isDeleted()) {
+                postings.add(event.getProduct());
+            }
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onCatalogVersionChanged(CatalogVersionChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            // A gap means a write from another node committed in between, which only a rebuild sees
+            if (postings != null && builtAtVersion != null && builtAtVersion == event.getVersion() - 1) {
+                builtAtVersion = event.getVersion();
+            }
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        lock.readLock().lock();
+        try {
+            return postings != null;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean supports(Sort sort) {
+        return sort.stream().allMatch(order -> SORT_PROPERTIES.contains(order.getProperty()));
+    }
+
+    public Result search(List<Long> categoryIds, String name, Pageable pageable) {
+        String query = normalize(name);
+
+        lock.readLock().lock();
+        try {
+            BitSet candidates = (BitSet) postings.all.clone();
+            if (!categoryIds.isEmpty()) {
+                BitSet inCategories = new BitSet();
+                categoryIds.forEach(categoryId -> {
+                    BitSet posting = postings.categories.get(categoryId);
+                    if (posting != null) {
+                        inCategories.or(posting);
+                    }
+                });
+                candidates.and(inCategories);
+            }
+            for (String trigram : trigramsOf(query)) {
+                BitSet posting = postings.trigrams.get(trigram);
+                if (posting == null) {
+                    return new Result(List.of(), 0);
+                }
+                candidates.and(posting);
+            }
+
+            List<Document> matches = new ArrayList<>(candidates.cardinality());
+            for (int bit = candidates.nextSetBit(0); bit >= 0; bit = candidates.nextSetBit(bit + 1)) {
+                Document document = postings.documents.get(bit);
+                if (document.normalizedName.contains(query)) {
+                    matches.add(document);
+                }
+            }
+            if (pageable.getSort().isSorted()) {
+                matches.sort(comparatorOf(pageable.getSort()));
+            }
+
+            if (pageable.isUnpaged()) {
+                return new Result(matches.stream().map(d -> d.id).toList(), matches.size());
+            }
+            int from = (int) Math.min(pageable.getOffset(), matches.size());
+            int to = Math.min(from + pageable.getPageSize(), matches.size());
+            return new Result(matches.subList(from, to).stream().map(d -> d.id).toList(), matches.size());
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<Long, Long> countByCategory(String name) {
+        String query = normalize(name);
+
+        lock.readLock().lock();
+        try {
+            BitSet matches = (BitSet) postings.all.clone();
+            for (String trigram : trigramsOf(query)) {
+                BitSet posting = postings.trigrams.get(trigram);
+                if (posting == null) {
+                    return Map.of();
+                }
+                matches.and(posting);
+            }
+            for (int bit = matches.nextSetBit(0); bit >= 0; bit = matches.nextSetBit(bit + 1)) {
+                if (!postings.documents.get(bit).normalizedName.contains(query)) {
+                    matches.clear(bit);
+                }
+            }
+
+            Map<Long, Long> result = new HashMap<>();
+            postings.categories.forEach((categoryId, posting) -> {
+                BitSet inCategory = (BitSet) posting.clone();
+                inCategory.and(matches);
+                result.put(categoryId, (long) inCategory.cardinality());
+            });
+            return result;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The index outlives the request, so its loads never come from a replica that may lag behind
+    private Long currentVersion() {
+        return ReadWriteRoutingDataSource.readFromPrimary(
+                () -> catalogVersionRepository.findCurrent().map(VersionProjection::getVersion).orElse(null));
+    }
+
+    private static <K> void clear(Map<K, BitSet> postings, K key, int bit) {
+        BitSet posting = postings.get(key);
+        if (posting != null) {
+            posting.clear(bit);
+            if (posting.isEmpty()) {
+                postings.remove(key);
+            }
+        }
+    }
+
+    private static Comparator<Document> comparatorOf(Sort sort) {
+        Comparator<Document> comparator = null;
+        for (Sort.Order order : sort) {
+            Comparator<Document> next = switch (order.getProperty()) {
+                case "name" -> Comparator.comparing(d -> d.name, Comparator.nullsLast(Comparator.naturalOrder()));
+                case "price" -> Comparator.comparing(d -> d.price, Comparator.nullsLast(Comparator.naturalOrder()));
+                case "date" -> Comparator.comparing(d -> d.date, Comparator.nullsLast(Comparator.naturalOrder()));
+                default -> Comparator.comparing(d -> d.id);
+            };
+            if (order.isDescending()) {
+                next = next.reversed();
+            }
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        return comparator;
+    }
+
+    private static List<String> trigramsOf(String text) {
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            result.add(text.substring(i, i + 3));
+        }
+        return result;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+}
@@ -1,60 +1,219 @@
 package com.henrique.dscatalog.services;
 
+import com.henrique.dscatalog.config.CacheConfig;
+import com.henrique.dscatalog.config.datasource.ReadWriteRoutingDataSource;
+import com.henrique.dscatalog.dto.BatchResultDTO;
 import com.henrique.dscatalog.dto.CategoryDTO;
+import com.henrique.dscatalog.dto.CategoryFacetDTO;
+import com.henrique.dscatalog.dto.CursorPageDTO;
+import com.henrique.dscatalog.dto.FacetedPageDTO;
 import com.henrique.dscatalog.dto.ProductDTO;
+import com.henrique.dscatalog.dto.SliceDTO;
+import com.henrique.dscatalog.dto.VersionDTO;
 import com.henrique.dscatalog.entities.Category;
 import com.henrique.dscatalog.entities.Product;
-import com.henrique.dscatalog.projections.ProductProjection;
+import com.henrique.dscatalog.projections.ProductSearchProjection;
+import com.henrique.dscatalog.repositories.CatalogVersionRepository;
 import com.henrique.dscatalog.repositories.CategoryRepository;
 import com.henrique.dscatalog.repositories.ProductRepository;
+import com.henrique.dscatalog.services.events.ProductChangedEvent;
 import com.henrique.dscatalog.services.exceptions.DatabaseException;
+import com.henrique.dscatalog.resources.exceptions.FieldMessage;
 import com.henrique.dscatalog.services.exceptions.ResourceNotFoundException;
+import com.henrique.dscatalog.util.ProductCursor;
 import com.henrique.dscatalog.util.Utils;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.PathVariable;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class ProductService {
+    @Value("${product-search.engine}")
+    private String searchEngine;
+    @Value("${product-batch.chunk-size}")
+    private Integer batchChunkSize;
+
     @Autowired
     ProductRepository productRepository;
     @Autowired
     CategoryRepository categoryRepository;
+    @Autowired
+    CatalogVersionRepository catalogVersionRepository;
+    @Autowired
+    CatalogVersionTracker catalogVersionTracker;
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+    @Autowired
+    ProductBatchWriter batchWriter;
+    @Autowired(required = false)
+    ProductSearchIndex searchIndex;
 
-    @SuppressWarnings("unchecked")
     @Transactional(readOnly = true)
     public Page<ProductDTO> findAllPaged(String name, String categoryId, Pageable pageable){
-        List<Long> categoryIds = List.of();
-        if(!"0".equals(categoryId)){
-            categoryIds = Arrays.stream(categoryId.split(",")).map(Long::parseLong).toList();
+        List<Long> categoryIds = parseCategoryIds(categoryId);
+        if (isIndexReady() && searchIndex.supports(pageable.getSort())) {
+            return findAllPagedFromIndex(categoryIds, name, pageable);
         }
 
-        Page<ProductProjection> page = productRepository.searchProducts(categoryIds, name, pageable);
-        List<Long> productIds = page.map(ProductProjection::getId).toList();
+        List<ProductSearchProjection> result = isRankedSearch(name, pageable)
+                ? productRepository.searchProductsPageByRelevance(categoryIds, name, pageable)
+                : productRepository.searchProductsPage(categoryIds, name, pageable);
+        List<ProductDTO> dtos = result.stream().map(ProductDTO::new).toList();
 
-        List<Product> entities = productRepository.searchProductsWithCategories(productIds);
-        entities = (List<Product>) Utils.replace(page.getContent(), entities);
+        // The total comes with every row; only a page past the end needs a separate count
+        List<Long> filterIds = categoryIds;
+        return PageableExecutionUtils.getPage(dtos, pageable, () -> result.isEmpty()
+                ? productRepository.countProducts(filterIds, name)
+                : result.get(0).getTotalElements());
+    }
+
+    @Transactional(readOnly = true)
+    public FacetedPageDTO<ProductDTO> findAllFaceted(String name, String categoryId, Pageable pageable){
+        Page<ProductDTO> page = findAllPaged(name, categoryId, pageable);
+        return new FacetedPageDTO<>(page, findCategoryFacets(name));
+    }
 
+    private List<CategoryFacetDTO> findCategoryFacets(String name){
+        if (!isIndexReady()) {
+            return categoryRepository.searchCategoryFacets(name).stream().map(CategoryFacetDTO::new).toList();
+        }
+
+        Map<Long, Long> counts = searchIndex.countByCategory(name);
+        return categoryRepository.findAll().stream()
+                .map(c -> new CategoryFacetDTO(c.getId(), c.getName(), counts.getOrDefault(c.getId(), 0L)))
+                .sorted(Comparator.comparing(CategoryFacetDTO::getName))
+                .toList();
+    }
+
+    // Until its first load finishes the index has nothing to answer with
+    private boolean isIndexReady(){
+        return searchIndex != null && searchIndex.isReady();
+    }
+
+    private Page<ProductDTO> findAllPagedFromIndex(List<Long> categoryIds, String name, Pageable pageable){
+        ProductSearchIndex.Result result = searchIndex.search(categoryIds, name, pageable);
+        List<Long> ids = result.getIds();
+
+        List<Product> entities = ids.isEmpty()
+                ? List.of()
+                : Utils.orderByIds(ids, productRepository.searchProductsWithCategories(ids));
         List<ProductDTO> dtos = entities.stream().map(p -> new ProductDTO(p, p.getCategories())).toList();
 
-        return new PageImpl<>(dtos, page.getPageable(), page.getTotalElements());
+        return new PageImpl<>(dtos, pageable, result.getTotal());
+    }
+
+    // Not transactional: a cache miss has to load the count in its own transaction on the primary,
+    // while the page itself may come from a replica
+    public Page<ProductDTO> findAllPagedWithCachedCount(String name, String categoryId, Pageable pageable){
+        List<Long> categoryIds = parseCategoryIds(categoryId);
+
+        Slice<ProductSearchProjection> result = productRepository.searchProductsSlice(categoryIds, name, pageable);
+        List<ProductDTO> dtos = result.map(ProductDTO::new).getContent();
+
+        return PageableExecutionUtils.getPage(dtos, pageable, () -> ReadWriteRoutingDataSource.readFromPrimary(
+                () -> productRepository.countProductsCached(categoryIds, name)));
     }
 
     @Transactional(readOnly = true)
-    public ProductDTO findById(Long id){
-        Product entity = productRepository.findById(id)
+    public SliceDTO<ProductDTO> findAllSliced(String name, String categoryId, Pageable pageable){
+        List<Long> categoryIds = parseCategoryIds(categoryId);
+
+        Slice<ProductSearchProjection> result = productRepository.searchProductsSlice(categoryIds, name, pageable);
+        return new SliceDTO<>(result.map(ProductDTO::new));
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPageDTO<ProductDTO> findAllByCursor(String name, String categoryId, String after, String before, Pageable pageable){
+        List<Long> categoryIds = parseCategoryIds(categoryId);
+        int size = pageable.getPageSize();
+
+        boolean backward = before != null;
+        ProductCursor cursor;
+        if (backward) {
+            cursor = ProductCursor.decode(before);
+        } else if (after != null) {
+            cursor = ProductCursor.decode(after);
+        } else {
+            cursor = ProductCursor.first(pageable.getSort());
+        }
+
+        Sort.Direction direction = cursor.getDirection();
+        if (backward) {
+            direction = direction.isAscending() ? Sort.Direction.DESC : Sort.Direction.ASC;
+        }
+
+        List<Long> ids = productRepository.searchProductIdsByKeyset(categoryIds, name, cursor.getProperty(),
+                direction, cursor.getKey(), cursor.getId(), size + 1);
+        boolean hasMore = ids.size() > size;
+        ids = new ArrayList<>(ids.subList(0, Math.min(size, ids.size())));
+        if (backward) {
+            Collections.reverse(ids);
+        }
+
+        List<Product> entities = ids.isEmpty()
+                ? List.of()
+                : Utils.orderByIds(ids, productRepository.searchProductsWithCategories(ids));
+        List<ProductDTO> dtos = entities.stream().map(p -> new ProductDTO(p, p.getCategories())).toList();
+
+        String next = null;
+        String previous = null;
+        if (!entities.isEmpty()) {
+            if (backward || hasMore) {
+                next = cursor.at(entities.get(entities.size() - 1)).encode();
+            }
+            if (backward ? hasMore : !cursor.isFirst()) {
+                previous = cursor.at(entities.get(0)).encode();
+            }
+        }
+
+        return new CursorPageDTO<>(dtos, size, next, previous);
+    }
+
+    @Transactional(readOnly = true)
+    public VersionDTO findVersion(Long id){
+        return productRepository.findVersionById(id)
+                .map(v -> new VersionDTO("product-" + id, v))
                 .orElseThrow(() -> new ResourceNotFoundException("Entity not found"));
-        return new ProductDTO(entity, entity.getCategories());
+    }
+
+    // Covers every product listing: any product or category write bumps it
+    @Transactional(readOnly = true)
+    public VersionDTO findCatalogVersion(){
+        return catalogVersionRepository.findCurrent()
+                .map(v -> new VersionDTO("catalog", v))
+                .orElseThrow(() -> new IllegalStateException("Catalog version row is missing"));
+    }
+
+    @Cacheable(value = CacheConfig.PRODUCTS, key = "#id")
+    @Transactional(readOnly = true)
+    public ProductDTO findById(Long id){
+        // Only runs on a cache miss, and what it loads is served until evicted, so it must not lag
+        return ReadWriteRoutingDataSource.readFromPrimary(() -> {
+            Product entity = productRepository.findById(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("Entity not found"));
+            return new ProductDTO(entity, entity.getCategories());
+        });
     }
 
     @Transactional
@@ -62,6 +221,8 @@ public class ProductService {
         Product entity = new Product();
         copyDtoToEntity(dto, entity);
         entity = productRepository.save(entity);
+        catalogVersionTracker.changed();
+        eventPublisher.publishEvent(new ProductChangedEvent(entity.getId(), entity));
 
         return  new ProductDTO(entity);
     }
@@ -72,6 +233,8 @@ public class ProductService {
             Product entity = productRepository.getReferenceById(id);
             copyDtoToEntity(dto, entity);
             entity = productRepository.save(entity);
+            catalogVersionTracker.changed();
+            eventPublisher.publishEvent(new ProductChangedEvent(entity.getId(), entity));
 
             return  new ProductDTO(entity);
         }catch (EntityNotFoundException e){
@@ -79,6 +242,48 @@ public class ProductService {
         }
     }
 
+    // Each chunk commits on its own, so a bad item only costs its chunk a retry, not the whole request
+    public BatchResultDTO saveAll(List<ProductDTO> dtos) {
+        BatchResultDTO result = new BatchResultDTO();
+        for (int offset = 0; offset < dtos.size(); offset += batchChunkSize) {
+            List<ProductDTO> chunk = dtos.subList(offset, Math.min(offset + batchChunkSize, dtos.size()));
+            result.merge(saveChunk(chunk, offset));
+        }
+        return result;
+    }
+
+    public BatchResultDTO saveChunk(List<ProductDTO> chunk, int offset) {
+        try {
+            return batchWriter.write(chunk, offset);
+        }
+        catch (DataIntegrityViolationException | OptimisticLockingFailureException e) {
+            // Caused by particular rows: retry item by item to find the ones the database rejected
+            if (chunk.size() == 1) {
+                return chunkFailed(chunk, offset, e instanceof DataIntegrityViolationException
+                        ? "Data integrity violation"
+                        : "Product was modified concurrently");
+            }
+        }
+        catch (RuntimeException e) {
+            // Anything else would fail the retries the same way, so the whole chunk is reported
+            return chunkFailed(chunk, offset, "Chunk could not be saved");
+        }
+
+        BatchResultDTO result = new BatchResultDTO();
+        for (int i = 0; i < chunk.size(); i++) {
+            result.merge(saveChunk(chunk.subList(i, i + 1), offset + i));
+        }
+        return result;
+    }
+
+    private BatchResultDTO chunkFailed(List<ProductDTO> chunk, int offset, String message) {
+        BatchResultDTO result = new BatchResultDTO();
+        for (int i = 0; i < chunk.size(); i++) {
+            result.addError(offset + i, chunk.get(i).getId(), List.of(new FieldMessage(null, message)));
+        }
+        return result;
+    }
+
     @Transactional(propagation = Propagation.SUPPORTS)
     public void deleteById(Long id) {
         if (!productRepository.existsById(id)) {
@@ -86,12 +291,26 @@ public class ProductService {
         }
         try {
             productRepository.deleteById(id);
+            catalogVersionTracker.changed();
+            eventPublisher.publishEvent(new ProductChangedEvent(id, null));
         }
         catch (DataIntegrityViolationException e) {
             throw new DatabaseException("Data integrity violation");
         }
     }
 
+    // pg_trgm only exists on PostgreSQL; other databases keep the plain LIKE search
+    private boolean isRankedSearch(String name, Pageable pageable) {
+        return "trigram".equals(searchEngine) && !name.isBlank() && pageable.getSort().isUnsorted();
+    }
+
+    static List<Long> parseCategoryIds(String categoryId) {
+        if("0".equals(categoryId)){
+            return List.of();
+        }
+        return Arrays.stream(categoryId.split(",")).map(Long::parseLong).toList();
+    }
+
     private void copyDtoToEntity(ProductDTO dto, Product entity) {
         entity.setName(dto.getName());
         entity.setDescription(dto.getDescription());
@@ -0,0 +1,72 @@
+package com.henrique.dscatalog.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.henrique.dscatalog.dto.ProductDTO;
+import com.henrique.dscatalog.entities.Product;
+import com.henrique.dscatalog.repositories.ProductRepository;
+import com.henrique.dscatalog.util.Utils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Streams search results to slow clients one keyset chunk at a time. Each chunk is read in its
+ * own short transaction and flushed before the next one is fetched, so a connection is only held
+ * while a chunk is loaded and a client that stops reading stops the reads behind it.
+ */
+@Service
+public class ProductStreamService {
+    @Value("${product-stream.chunk-size}")
+    private Integer chunkSize;
+
+    @Autowired
+    ProductRepository productRepository;
+    @Autowired
+    ObjectMapper objectMapper;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    public void stream(String name, String categoryId, OutputStream out) throws IOException {
+        List<Long> categoryIds = ProductService.parseCategoryIds(categoryId);
+        TransactionTemplate readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+
+        Long lastId = null;
+        List<ProductDTO> chunk;
+        do {
+            Long after = lastId;
+            chunk = readOnlyTransaction.execute(status -> findChunk(categoryIds, name, after));
+            for (ProductDTO dto : chunk) {
+                writer.write(objectMapper.writeValueAsString(dto));
+                writer.write('\n');
+            }
+            // Blocks while the client's socket buffer is full, which is what paces the next read
+            writer.flush();
+            if (!chunk.isEmpty()) {
+                lastId = chunk.get(chunk.size() - 1).getId();
+            }
+        } while (chunk.size() == chunkSize);
+    }
+
+    private List<ProductDTO> findChunk(List<Long> categoryIds, String name, Long after) {
+        List<Long> ids = productRepository.searchProductIdsByKeyset(categoryIds, name, null,
+                Sort.Direction.ASC, null, after, chunkSize);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        List<Product> entities = Utils.orderByIds(ids, productRepository.searchProductsWithCategories(ids));
+        return entities.stream().map(p -> new ProductDTO(p, p.getCategories())).toList();
+    }
+}
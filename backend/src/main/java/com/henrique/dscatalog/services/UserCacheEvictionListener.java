@@ -0,0 +1,17 @@
+package com.henrique.dscatalog.services;
+
+import com.henrique.dscatalog.config.CacheConfig;
+import com.henrique.dscatalog.services.events.UserChangedEvent;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+@Component
+public class UserCacheEvictionListener {
+
+    // Same post-commit timing as the product cache, so a login racing the change cannot re-cache the old row
+    @CacheEvict(value = CacheConfig.USER_DETAILS, key = "#event.email")
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+    }
+}
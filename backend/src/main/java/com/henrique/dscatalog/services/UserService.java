@@ -1,6 +1,7 @@
 package com.henrique.dscatalog.services;
 
 import com.henrique.dscatalog.dto.RoleDto;
+import com.henrique.dscatalog.dto.SliceDTO;
 import com.henrique.dscatalog.dto.UserDTO;
 import com.henrique.dscatalog.dto.UserInsertDTO;
 import com.henrique.dscatalog.dto.UserUpdateDTO;
@@ -9,14 +10,18 @@ import com.henrique.dscatalog.entities.User;
 import com.henrique.dscatalog.projections.UserDetailsProjection;
 import com.henrique.dscatalog.repositories.RoleRepository;
 import com.henrique.dscatalog.repositories.UserRepository;
+import com.henrique.dscatalog.services.events.UserChangedEvent;
 import com.henrique.dscatalog.services.exceptions.DatabaseException;
 import com.henrique.dscatalog.services.exceptions.ResourceNotFoundException;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -27,7 +32,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
 
 @Service
-public class UserService implements UserDetailsService {
+public class UserService implements UserDetailsService, UserDetailsPasswordService {
     @Autowired
     private PasswordEncoder passwordEncoder;
     @Autowired
@@ -38,6 +43,8 @@ public class UserService implements UserDetailsService {
     private UserRepository repository;
     @Autowired
     private AuthService authService;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
@@ -55,12 +62,28 @@ public class UserService implements UserDetailsService {
         return user;
     }
 
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        // Only replaces the hash the login was verified against, so a concurrent password change wins
+        if (repository.updatePassword(user.getUsername(), user.getPassword(), newPassword) > 0) {
+            eventPublisher.publishEvent(new UserChangedEvent(user.getUsername()));
+        }
+        return org.springframework.security.core.userdetails.User.withUserDetails(user).password(newPassword).build();
+    }
+
     @Transactional(readOnly = true)
     public Page<UserDTO> findAllPaged(Pageable pageable){
         Page<User> result = userRepository.findAll(pageable);
         return result.map(UserDTO::new);
     }
 
+    @Transactional(readOnly = true)
+    public SliceDTO<UserDTO> findAllSliced(Pageable pageable){
+        Slice<User> result = userRepository.findSliceBy(pageable);
+        return new SliceDTO<>(result.map(UserDTO::new));
+    }
+
     @Transactional(readOnly = true)
     public UserDTO findMe(){
         User entity = authService.authenticated();
@@ -93,8 +116,10 @@ public class UserService implements UserDetailsService {
     public UserDTO update(Long id, UserUpdateDTO dto) {
         try{
             User entity = userRepository.getReferenceById(id);
+            eventPublisher.publishEvent(new UserChangedEvent(entity.getEmail()));
             copyDtoToEntity(dto, entity);
             entity = userRepository.save(entity);
+            eventPublisher.publishEvent(new UserChangedEvent(entity.getEmail()));
 
             return  new UserDTO(entity);
         }catch (EntityNotFoundException e){
@@ -104,11 +129,11 @@ public class UserService implements UserDetailsService {
 
     @Transactional(propagation = Propagation.SUPPORTS)
     public void deleteById(Long id) {
-        if (!userRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Resource not found");
-        }
+        User entity = userRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Resource not found"));
         try {
             userRepository.deleteById(id);
+            eventPublisher.publishEvent(new UserChangedEvent(entity.getEmail()));
         }
         catch (DataIntegrityViolationException e) {
             throw new DatabaseException("Data integrity violation");
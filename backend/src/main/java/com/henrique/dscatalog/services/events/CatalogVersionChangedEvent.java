@@ -0,0 +1,17 @@
+package com.henrique.dscatalog.services.events;
+
+/**
+ * Published after a transaction on this node committed a catalog write, with the value its
+ * increment moved tb_catalog_version to.
+ */
+public class CatalogVersionChangedEvent {
+    private final long version;
+
+    public CatalogVersionChangedEvent(long version) {
+        this.version = version;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+}
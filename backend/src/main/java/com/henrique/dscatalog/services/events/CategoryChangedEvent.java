@@ -0,0 +1,13 @@
+package com.henrique.dscatalog.services.events;
+
+public class CategoryChangedEvent {
+    private final Long id;
+
+    public CategoryChangedEvent(Long id) {
+        this.id = id;
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
@@ -0,0 +1,28 @@
+package com.henrique.dscatalog.services.events;
+
+import com.henrique.dscatalog.entities.Product;
+
+public class ProductChangedEvent {
+    private final Long id;
+    private final Product product;
+
+    public ProductChangedEvent(Long id, Product product) {
+        this.id = id;
+        this.product = product;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * The saved entity, or null when the product was deleted.
+     */
+    public Product getProduct() {
+        return product;
+    }
+
+    public boolean isDeleted() {
+        return product == null;
+    }
+}
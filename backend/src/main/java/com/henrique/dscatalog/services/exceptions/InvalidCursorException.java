@@ -0,0 +1,7 @@
+package com.henrique.dscatalog.services.exceptions;
+
+public class InvalidCursorException extends RuntimeException {
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
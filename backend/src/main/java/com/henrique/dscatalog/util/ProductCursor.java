@@ -0,0 +1,123 @@
+package com.henrique.dscatalog.util;
+
+import com.henrique.dscatalog.entities.Product;
+import com.henrique.dscatalog.services.exceptions.InvalidCursorException;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Opaque keyset position for product scrolling: the sort used, plus the sort key and id
+ * of the row the client stopped at. A null property means the scroll is ordered by id only.
+ */
+public class ProductCursor {
+    private static final Set<String> SORT_PROPERTIES = Set.of("name", "price", "date");
+
+    private final String property;
+    private final Sort.Direction direction;
+    private final Object key;
+    private final Long id;
+
+    public ProductCursor(String property, Sort.Direction direction, Object key, Long id) {
+        this.property = property;
+        this.direction = direction;
+        this.key = key;
+        this.id = id;
+    }
+
+    public static ProductCursor first(Sort sort) {
+        Iterator<Sort.Order> orders = sort.iterator();
+        if (!orders.hasNext()) {
+            return new ProductCursor(null, Sort.Direction.ASC, null, null);
+        }
+
+        Sort.Order order = orders.next();
+        if (orders.hasNext() || !SORT_PROPERTIES.contains(order.getProperty())) {
+            throw new InvalidCursorException("Scrolling supports a single sort by name, price or date");
+        }
+        return new ProductCursor(order.getProperty(), order.getDirection(), null, null);
+    }
+
+    public static ProductCursor decode(String token) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = value.split("\\|", 4);
+            String property = parts[0].isEmpty() ? null : parts[0];
+            if (property != null && !SORT_PROPERTIES.contains(property)) {
+                throw new InvalidCursorException("Invalid cursor");
+            }
+
+            Sort.Direction direction = Sort.Direction.fromString(parts[1]);
+            Long id = Long.parseLong(parts[2]);
+            return new ProductCursor(property, direction, parseKey(property, parts[3]), id);
+        }
+        catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new InvalidCursorException("Invalid cursor");
+        }
+    }
+
+    public ProductCursor at(Product product) {
+        return new ProductCursor(property, direction, keyOf(product), product.getId());
+    }
+
+    public String encode() {
+        String value = (property == null ? "" : property) + "|" + direction + "|" + id + "|"
+                + (key == null ? "" : key.toString());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public boolean isFirst() {
+        return id == null;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    public Sort.Direction getDirection() {
+        return direction;
+    }
+
+    public Object getKey() {
+        return key;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    private Object keyOf(Product product) {
+        if (property == null) {
+            return null;
+        }
+        return switch (property) {
+            case "name" -> product.getName();
+            case "price" -> product.getPrice();
+            default -> product.getDate();
+        };
+    }
+
+    private static Object parseKey(String property, String value) {
+        if (property == null) {
+            return null;
+        }
+        return switch (property) {
+            case "name" -> value;
+            case "price" -> Double.parseDouble(value);
+            default -> parseInstant(value);
+        };
+    }
+
+    private static Instant parseInstant(String value) {
+        try {
+            return Instant.parse(value);
+        }
+        catch (RuntimeException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
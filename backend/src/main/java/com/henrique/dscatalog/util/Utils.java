@@ -14,14 +14,25 @@ public class Utils {
             List<? extends IdProjection<ID>> ordered,
             List<? extends IdProjection<ID>> unordered
     ) {
-        Map<ID, IdProjection<ID>> map = new HashMap<>();
-        for(IdProjection<ID> obj : unordered){
+        return orderByIds(ordered.stream().map(IdProjection::getId).toList(), unordered);
+    }
+
+    /**
+     * Puts unordered in the order of ids. Ids with no match, e.g. rows deleted between the id query
+     * and the fetch, are skipped rather than left as null.
+     */
+    public static <ID, T extends IdProjection<ID>> List<T> orderByIds(List<ID> ids, List<T> unordered) {
+        Map<ID, T> map = new HashMap<>();
+        for(T obj : unordered){
             map.put(obj.getId(), obj);
         }
 
-        List<IdProjection<ID>> result = new ArrayList<>();
-        for(IdProjection<ID> obj : ordered){
-            result.add(map.get(obj.getId()));
+        List<T> result = new ArrayList<>();
+        for(ID id : ids){
+            T obj = map.get(id);
+            if (obj != null) {
+                result.add(obj);
+            }
         }
 
         return result;
@@ -0,0 +1,12 @@
+ALTER TABLE tb_product ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0;
+ALTER TABLE tb_product ADD COLUMN IF NOT EXISTS created_at TIMESTAMP WITHOUT TIME ZONE;
+ALTER TABLE tb_product ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP WITHOUT TIME ZONE;
+ALTER TABLE tb_category ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0;
+
+CREATE TABLE IF NOT EXISTS tb_catalog_version (
+    id BIGINT PRIMARY KEY,
+    version BIGINT NOT NULL,
+    updated_at TIMESTAMP WITHOUT TIME ZONE
+);
+
+INSERT INTO tb_catalog_version (id, version, updated_at) VALUES (1, 0, NOW()) ON CONFLICT (id) DO NOTHING;
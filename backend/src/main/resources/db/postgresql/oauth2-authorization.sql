@@ -0,0 +1,41 @@
+CREATE TABLE IF NOT EXISTS oauth2_authorization (
+    id varchar(100) NOT NULL,
+    registered_client_id varchar(100) NOT NULL,
+    principal_name varchar(200) NOT NULL,
+    authorization_grant_type varchar(100) NOT NULL,
+    authorized_scopes varchar(1000) DEFAULT NULL,
+    attributes bytea DEFAULT NULL,
+    state varchar(500) DEFAULT NULL,
+    authorization_code_value bytea DEFAULT NULL,
+    authorization_code_issued_at TIMESTAMP WITHOUT TIME ZONE DEFAULT NULL,
+    authorization_code_expires_at TIMESTAMP WITHOUT TIME ZONE DEFAULT NULL,
+    authorization_code_metadata bytea DEFAULT NULL,
+    access_token_value bytea DEFAULT NULL,
+    access_token_issued_at TIMESTAMP WITHOUT TIME ZONE DEFAULT NULL,
+    access_token_expires_at TIMESTAMP WITHOUT TIME ZONE DEFAULT NULL,
+    access_token_metadata bytea DEFAULT NULL,
+    access_token_type varchar(100) DEFAULT NULL,
+    access_token_scopes varchar(1000) DEFAULT NULL,
+    oidc_id_token_value bytea DEFAULT NULL,
+    oidc_id_token_issued_at TIMESTAMP WITHOUT TIME ZONE DEFAULT NULL,
+    oidc_id_token_expires_at TIMESTAMP WITHOUT TIME ZONE DEFAULT NULL,
+    oidc_id_token_metadata bytea DEFAULT NULL,
+    refresh_token_value bytea DEFAULT NULL,
+    refresh_token_issued_at TIMESTAMP WITHOUT TIME ZONE DEFAULT NULL,
+    refresh_token_expires_at TIMESTAMP WITHOUT TIME ZONE DEFAULT NULL,
+    refresh_token_metadata bytea DEFAULT NULL,
+    user_code_value bytea DEFAULT NULL,
+    user_code_issued_at TIMESTAMP WITHOUT TIME ZONE DEFAULT NULL,
+    user_code_expires_at TIMESTAMP WITHOUT TIME ZONE DEFAULT NULL,
+    user_code_metadata bytea DEFAULT NULL,
+    device_code_value bytea DEFAULT NULL,
+    device_code_issued_at TIMESTAMP WITHOUT TIME ZONE DEFAULT NULL,
+    device_code_expires_at TIMESTAMP WITHOUT TIME ZONE DEFAULT NULL,
+    device_code_metadata bytea DEFAULT NULL,
+    PRIMARY KEY (id)
+);
+
+-- Hash indexes: token values are JWTs and can exceed the btree entry size limit
+CREATE INDEX IF NOT EXISTS idx_oauth2_authorization_access_token ON oauth2_authorization USING hash (access_token_value);
+CREATE INDEX IF NOT EXISTS idx_oauth2_authorization_refresh_token ON oauth2_authorization USING hash (refresh_token_value);
+CREATE INDEX IF NOT EXISTS idx_oauth2_authorization_access_token_expires_at ON oauth2_authorization (access_token_expires_at);
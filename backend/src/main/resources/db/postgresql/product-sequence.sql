@@ -0,0 +1,6 @@
+CREATE SEQUENCE IF NOT EXISTS tb_product_seq START WITH 1 INCREMENT BY 50;
+
+-- Never move backwards: skip past both the existing rows and any block another instance already holds
+SELECT setval('tb_product_seq', GREATEST(COALESCE(MAX(p.id), 0), s.last_value + 49) + 1, false)
+FROM tb_product_seq s LEFT JOIN tb_product p ON TRUE
+GROUP BY s.last_value;
@@ -0,0 +1,57 @@
+package com.henrique.dscatalog.benchmarks;
+
+import com.henrique.dscatalog.config.PasswordEncoderConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.scrypt.SCryptPasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Password verifications per second for each encoder setting. Each JMH thread keeps one core busy,
+ * so with {@code -t 1} the score is logins/sec per core; multiply by the hashing pool size to size a node.
+ * <p>
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec}, passing JMH options in {@code -Dbenchmark.args}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class PasswordEncoderBenchmark {
+
+    @Param({"bcrypt:10", "bcrypt:12", "argon2:16384:2", "argon2:65536:3", "scrypt"})
+    private String setting;
+
+    private PasswordEncoder encoder;
+    private String encodedPassword;
+
+    @Setup
+    public void setUp() {
+        String[] parts = setting.split(":");
+        encoder = switch (parts[0]) {
+            case PasswordEncoderConfig.BCRYPT -> new BCryptPasswordEncoder(Integer.parseInt(parts[1]));
+            case PasswordEncoderConfig.ARGON2 -> PasswordEncoderConfig.argon2(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+            case PasswordEncoderConfig.SCRYPT -> SCryptPasswordEncoder.defaultsForSpringSecurity_v5_8();
+            default -> throw new IllegalArgumentException("Unknown encoder setting " + setting);
+        };
+        encodedPassword = encoder.encode("123456");
+    }
+
+    @Benchmark
+    public boolean login() {
+        return encoder.matches("123456", encodedPassword);
+    }
+}
@@ -0,0 +1,97 @@
+package com.henrique.dscatalog.benchmarks;
+
+import com.henrique.dscatalog.DscatalogApplication;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test for {@code GET /products} with platform-thread and virtual-thread request handling. Tomcat
+ * is capped at {@code tomcatThreads} platform threads and the database at {@code dbConcurrency}
+ * connections, so with many client threads ({@code -t}) the platform mode queues in Tomcat while the
+ * virtual mode queues on the connection semaphore.
+ * <p>
+ * The project builds for Java 17, where only the platform mode exists, so by default only that mode
+ * runs and no virtual-thread numbers have been recorded yet. The comparison needs a JDK 21 build:
+ * {@code mvn -Pbenchmark,java21 test-compile exec:exec -Dbenchmark.args="ProductListing -t 200
+ * -p virtualThreads=false,true"}. Add {@code -jvmArgsAppend -Djdk.tracePinnedThreads=short} to print
+ * any remaining carrier pinning.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 20)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class ProductListingBenchmark {
+
+    @Param("false")
+    private boolean virtualThreads;
+
+    @Param("50")
+    private int tomcatThreads;
+
+    @Param("10")
+    private int dbConcurrency;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private HttpRequest listRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Boot silently ignores the flag below Java 21, which would report platform threads twice
+        if (virtualThreads && Runtime.version().feature() < 21) {
+            throw new IllegalStateException("virtualThreads=true needs Java 21, running " + Runtime.version());
+        }
+
+        context = new SpringApplicationBuilder(DscatalogApplication.class).run(
+                "--server.port=0",
+                "--spring.threads.virtual.enabled=" + virtualThreads,
+                "--server.tomcat.threads.max=" + tomcatThreads,
+                "--datasource.concurrency-limit=" + dbConcurrency,
+                "--spring.datasource.hikari.maximum-pool-size=" + dbConcurrency,
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN");
+
+        int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        listRequest = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/products?page=0&size=12&sort=name"))
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+    }
+
+    @Benchmark
+    public int listProducts() throws Exception {
+        HttpResponse<String> response = client.send(listRequest, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Listing failed: " + response.statusCode());
+        }
+        return response.body().length();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+}
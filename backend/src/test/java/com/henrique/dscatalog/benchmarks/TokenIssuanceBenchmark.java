@@ -0,0 +1,101 @@
+package com.henrique.dscatalog.benchmarks;
+
+import com.henrique.dscatalog.DscatalogApplication;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test for the token endpoint with stateless issuance on and off. It boots the application on a
+ * random port (test profile, H2) and issues password-grant tokens over HTTP. The score is tokens/sec;
+ * the heap retained by the stored authorizations is printed at the end of each trial.
+ * <p>
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark.args="TokenIssuance -t 8"}.
+ * BCrypt cost is lowered to 4 so that hashing does not hide the difference.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 20)
+@Fork(value = 1, jvmArgsAppend = "-Xmx512m")
+public class TokenIssuanceBenchmark {
+
+    @Param({"false", "true"})
+    private boolean stateless;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private HttpRequest tokenRequest;
+    private long heapBefore;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = new SpringApplicationBuilder(DscatalogApplication.class).run(
+                "--server.port=0",
+                "--security.jwt.stateless=" + stateless,
+                "--password-encoder.bcrypt.strength=4",
+                "--login-attempts.max-per-ip=" + Integer.MAX_VALUE,
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN");
+
+        Environment env = context.getEnvironment();
+        String credentials = env.getProperty("security.client-id") + ":" + env.getProperty("security.client-secret");
+        int port = ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        tokenRequest = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/oauth2/token"))
+                .header("Authorization", "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8)))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString("grant_type=password&username=maria%40gmail.com&password=123456"))
+                .build();
+
+        // The first login rehashes the seed password with the lowered cost
+        issueToken();
+        heapBefore = usedHeapAfterGc();
+    }
+
+    @Benchmark
+    public int issueToken() throws Exception {
+        HttpResponse<String> response = client.send(tokenRequest, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Token request failed: " + response.statusCode() + " " + response.body());
+        }
+        return response.body().length();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        long retainedKib = (usedHeapAfterGc() - heapBefore) / 1024;
+        System.out.printf("%nstateless=%s: heap retained after the run: %d KiB%n", stateless, retainedKib);
+        context.close();
+    }
+
+    private static long usedHeapAfterGc() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
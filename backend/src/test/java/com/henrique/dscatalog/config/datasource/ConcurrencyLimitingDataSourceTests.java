@@ -0,0 +1,59 @@
+package com.henrique.dscatalog.config.datasource;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+@ExtendWith(SpringExtension.class)
+public class ConcurrencyLimitingDataSourceTests {
+    @Mock
+    private DataSource target;
+
+    private ConcurrencyLimitingDataSource dataSource;
+
+    @BeforeEach
+    void setUp() throws Exception{
+        Mockito.when(target.getConnection()).thenAnswer(invocation -> Mockito.mock(Connection.class));
+        dataSource = new ConcurrencyLimitingDataSource(target, 2, 50);
+    }
+
+    @Test
+    public void getConnectionShouldThrowSQLTransientConnectionExceptionWhenLimitReached() throws Exception{
+        dataSource.getConnection();
+        dataSource.getConnection();
+
+        Assertions.assertThrows(SQLTransientConnectionException.class, () -> dataSource.getConnection());
+        Mockito.verify(target, Mockito.times(2)).getConnection();
+    }
+
+    @Test
+    public void closeShouldReleasePermitOnlyOnce() throws Exception{
+        Connection connection = dataSource.getConnection();
+        dataSource.getConnection();
+
+        connection.close();
+        connection.close();
+
+        Assertions.assertEquals(1, dataSource.getAvailablePermits());
+        Assertions.assertNotNull(dataSource.getConnection());
+        Assertions.assertThrows(SQLTransientConnectionException.class, () -> dataSource.getConnection());
+    }
+
+    @Test
+    public void getConnectionShouldReleasePermitWhenTargetFails() throws Exception{
+        Mockito.when(target.getConnection()).thenThrow(new SQLException("down"));
+
+        Assertions.assertThrows(SQLException.class, () -> dataSource.getConnection());
+
+        Assertions.assertEquals(2, dataSource.getAvailablePermits());
+    }
+}
@@ -0,0 +1,39 @@
+package com.henrique.dscatalog.config.datasource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest(properties = {
+        "datasource.concurrency-limit=4",
+        "datasource.replicas.urls=jdbc:h2:mem:metrics-replica",
+        "datasource.replicas.username=sa",
+        "datasource.replicas.password="
+})
+public class DataSourceMetricsIT {
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    public void everyPoolShouldReportHikariAndConcurrencyLimitMetrics() {
+        for (String gauge : new String[]{"hikaricp.connections.active", "hikaricp.connections.idle", "hikaricp.connections.pending"}) {
+            Assertions.assertEquals(2, meterRegistry.find(gauge).gauges().size(), gauge);
+            Assertions.assertNotNull(meterRegistry.find(gauge).tag("pool", "replica-0").gauge(), gauge);
+        }
+
+        Assertions.assertEquals(2, meterRegistry.find("datasource.concurrency.available").gauges().size());
+        Assertions.assertEquals(4.0, meterRegistry.get("datasource.concurrency.available").tag("pool", "replica-0").gauge().value());
+        Assertions.assertEquals(0.0, meterRegistry.get("datasource.concurrency.waiting").tag("pool", "replica-0").gauge().value());
+    }
+
+    @Test
+    public void acquireTimerShouldPublishPercentiles() {
+        Timer acquire = meterRegistry.get("hikaricp.connections.acquire").tag("pool", "replica-0").timer();
+
+        Assertions.assertTrue(acquire.count() > 0);
+        Assertions.assertEquals(3, acquire.takeSnapshot().percentileValues().length);
+    }
+}
@@ -0,0 +1,125 @@
+package com.henrique.dscatalog.config.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.List;
+import java.util.Set;
+
+public class ReadWriteRoutingDataSourceTests {
+    private DataSource primary, replica1, replica2;
+    private ReadReplicas replicas;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readOnlyTransaction, readWriteTransaction;
+    private String sessionKey;
+
+    @BeforeEach
+    void setUp() throws Exception{
+        primary = node("primary");
+        replica1 = node("replica1");
+        replica2 = node("replica2");
+        replicas = new ReadReplicas(List.of(replica1, replica2), ReadReplicas.Selection.ROUND_ROBIN, 1000,
+                "SELECT lag FROM tb_node");
+
+        DataSource routing = new ReadWriteRoutingDataSource(primary, replicas, () -> sessionKey, 60_000);
+        jdbcTemplate = new JdbcTemplate(routing);
+        readWriteTransaction = new TransactionTemplate(new DataSourceTransactionManager(routing));
+        readOnlyTransaction = new TransactionTemplate(new DataSourceTransactionManager(routing));
+        readOnlyTransaction.setReadOnly(true);
+        sessionKey = null;
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (DataSource node : List.of(primary, replica1, replica2)) {
+            new JdbcTemplate(node).execute("DROP TABLE tb_node");
+        }
+    }
+
+    @Test
+    public void readOnlyTransactionShouldRoundRobinOverReplicas() {
+        Set<String> served = Set.of(readOnly(), readOnly());
+
+        Assertions.assertEquals(Set.of("replica1", "replica2"), served);
+    }
+
+    @Test
+    public void readWriteTransactionShouldUsePrimary() {
+        String served = readWriteTransaction.execute(status -> currentNode());
+
+        Assertions.assertEquals("primary", served);
+    }
+
+    @Test
+    public void readOnlyTransactionShouldSkipLaggingReplicaAndFallBackToPrimaryWhenAllLag() {
+        new JdbcTemplate(replica1).update("UPDATE tb_node SET lag = 5000");
+        replicas.checkLag();
+
+        Assertions.assertEquals("replica2", readOnly());
+        Assertions.assertEquals("replica2", readOnly());
+
+        new JdbcTemplate(replica2).update("UPDATE tb_node SET lag = 5000");
+        replicas.checkLag();
+
+        Assertions.assertEquals("primary", readOnly());
+    }
+
+    @Test
+    public void readOnlyTransactionShouldStickToPrimaryAfterWriteInSameSession() {
+        sessionKey = "maria@gmail.com";
+        readWriteTransaction.executeWithoutResult(status -> jdbcTemplate.update("UPDATE tb_node SET lag = 0"));
+
+        Assertions.assertEquals("primary", readOnly());
+
+        sessionKey = "alex@gmail.com";
+        Assertions.assertNotEquals("primary", readOnly());
+    }
+
+    @Test
+    public void readFromPrimaryShouldServeReadOnlyTransactionsFromPrimary() {
+        String served = ReadWriteRoutingDataSource.readFromPrimary(this::readOnly);
+
+        Assertions.assertEquals("primary", served);
+        Assertions.assertNotEquals("primary", readOnly());
+    }
+
+    @Test
+    public void leastLoadedShouldPickReplicaWithFewestOpenConnections() throws Exception{
+        ReadReplicas leastLoaded = new ReadReplicas(List.of(replica1, replica2), ReadReplicas.Selection.LEAST_LOADED, 1000,
+                "SELECT lag FROM tb_node");
+
+        try (Connection first = leastLoaded.getConnection(); Connection second = leastLoaded.getConnection()) {
+            Assertions.assertNotEquals(nodeOf(first), nodeOf(second));
+        }
+    }
+
+    private String readOnly() {
+        return readOnlyTransaction.execute(status -> currentNode());
+    }
+
+    private String currentNode() {
+        return jdbcTemplate.queryForObject("SELECT name FROM tb_node", String.class);
+    }
+
+    private String nodeOf(Connection connection) {
+        return new JdbcTemplate(new SingleConnectionDataSource(connection, true))
+                .queryForObject("SELECT name FROM tb_node", String.class);
+    }
+
+    private DataSource node(String name) {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:routing-" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.execute("CREATE TABLE tb_node (name VARCHAR(20), lag BIGINT)");
+        template.update("INSERT INTO tb_node (name, lag) VALUES (?, 0)", name);
+        return dataSource;
+    }
+}
@@ -0,0 +1,97 @@
+package com.henrique.dscatalog.repositories;
+
+import com.henrique.dscatalog.dto.CategoryDTO;
+import com.henrique.dscatalog.entities.Category;
+import com.henrique.dscatalog.entities.Product;
+import com.henrique.dscatalog.entities.Role;
+import com.henrique.dscatalog.services.CategoryService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class SecondLevelCacheIT {
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private RoleRepository roleRepository;
+    @Autowired
+    private CategoryService categoryService;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Statistics statistics;
+    private Long existingProductId;
+
+    @BeforeEach
+    void setUp() throws Exception{
+        existingProductId = 1L;
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictAllRegions();
+        statistics = sessionFactory.getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    public void productCategoriesShouldBeServedFromSecondLevelCacheOnRepeatedReads() {
+        Set<String> first = categoryNames(existingProductId);
+        Set<String> second = categoryNames(existingProductId);
+
+        Assertions.assertEquals(first, second);
+        Assertions.assertEquals(1, statistics.getCollectionStatistics(Product.class.getName() + ".categories").getCacheHitCount());
+        Assertions.assertTrue(statistics.getDomainDataRegionStatistics("category").getHitCount() > 0);
+    }
+
+    @Test
+    public void findByAuthorityShouldBeServedFromQueryCacheOnRepeatedCalls() {
+        Role first = transactionTemplate.execute(status -> roleRepository.findByAuthority("ROLE_OPERATOR"));
+        Role second = transactionTemplate.execute(status -> roleRepository.findByAuthority("ROLE_OPERATOR"));
+
+        Assertions.assertEquals(first.getId(), second.getId());
+        Assertions.assertEquals(1, statistics.getQueryCacheHitCount());
+        Assertions.assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void categoryUpdateShouldInvalidateCachedCategory() {
+        Long categoryId = 2L;
+        String originalName = categoryService.findById(categoryId).getName();
+        categoryService.findById(categoryId);
+
+        try {
+            categoryService.update(categoryId, new CategoryDTO(categoryId, "Renamed"));
+            Assertions.assertEquals("Renamed", categoryService.findById(categoryId).getName());
+        }
+        finally {
+            categoryService.update(categoryId, new CategoryDTO(categoryId, originalName));
+        }
+    }
+
+    @Test
+    public void regionStatisticsShouldBeExposedAsMetrics() {
+        categoryNames(existingProductId);
+        categoryNames(existingProductId);
+
+        Assertions.assertFalse(meterRegistry.find("hibernate.second.level.cache.requests")
+                .tag("region", "category").tag("result", "hit").functionCounters().isEmpty());
+    }
+
+    private Set<String> categoryNames(Long productId) {
+        return transactionTemplate.execute(status -> productRepository.findById(productId).orElseThrow()
+                .getCategories().stream().map(Category::getName).collect(Collectors.toSet()));
+    }
+}
@@ -0,0 +1,109 @@
+package com.henrique.dscatalog.resources;
+
+import com.henrique.dscatalog.dto.CategoryDTO;
+import com.henrique.dscatalog.services.CategoryService;
+import com.henrique.dscatalog.services.events.CategoryChangedEvent;
+import jakarta.persistence.EntityManagerFactory;
+import org.hamcrest.Matchers;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+public class CategoryResourceIT {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private CategoryService categoryService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    public void findAllShouldReturnNotModifiedWhenEtagMatches() throws Exception{
+        String etag = mockMvc.perform(get("/categories")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[1].name").value("Livros"))
+                .andExpect(header().string(HttpHeaders.ETAG, Matchers.startsWith("\"categories-")))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/categories")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+    }
+
+    @Test
+    public void findAllShouldKeepEtagWhenSnapshotIsRebuiltWithoutChanges() throws Exception{
+        String etag = mockMvc.perform(get("/categories"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        categoryService.onCategoryChanged(new CategoryChangedEvent(1L));
+
+        mockMvc.perform(get("/categories")
+                        .header(HttpHeaders.IF_NONE_MATCH, etag)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void findAllShouldReturnBodyWhenCategoryInserted() throws Exception{
+        String etag = mockMvc.perform(get("/categories"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        CategoryDTO dto = categoryService.insert(new CategoryDTO(null, "Games"));
+        try {
+            mockMvc.perform(get("/categories")
+                            .header(HttpHeaders.IF_NONE_MATCH, etag)
+                            .accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()").value(4));
+        }
+        finally {
+            categoryService.deleteById(dto.getId());
+        }
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void findAllShouldReturnChangeCommittedByAnotherNodeOnceCatalogVersionMoves() throws Exception{
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        mockMvc.perform(get("/categories"))
+                .andExpect(jsonPath("$[1].name").value("Livros"));
+
+        // What another node's commit leaves behind: the row and the shared version, but no local event
+        jdbcTemplate.update("UPDATE tb_category SET name = 'Books' WHERE id = 2");
+        jdbcTemplate.update("UPDATE tb_catalog_version SET version = version + 1 WHERE id = 1");
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        try {
+            mockMvc.perform(get("/categories"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$[1].name").value("Books"));
+        }
+        finally {
+            jdbcTemplate.update("UPDATE tb_category SET name = 'Livros' WHERE id = 2");
+            jdbcTemplate.update("UPDATE tb_catalog_version SET version = version + 1 WHERE id = 1");
+            entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.henrique.dscatalog.resources;
+
+import com.henrique.dscatalog.config.jwk.SigningKeys;
+import com.henrique.dscatalog.tests.TokenUtil;
+import com.nimbusds.jwt.SignedJWT;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "security.jwt.keys.pem-locations=classpath:keys/ec-signing.pem,classpath:keys/rsa-previous.pem",
+        "security.jwt.keys.jwks-max-age-seconds=600"
+})
+@AutoConfigureMockMvc
+public class JwkSetIT {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private TokenUtil tokenUtil;
+    @Autowired
+    private SigningKeys signingKeys;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    public void jwksShouldPublishAllPublicKeysWithCacheHeader() throws Exception{
+        mockMvc.perform(get("/oauth2/jwks"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=600, public"))
+                .andExpect(jsonPath("$.keys.length()").value(2))
+                .andExpect(jsonPath("$.keys[0].kty").value("EC"))
+                .andExpect(jsonPath("$.keys[0].kid").value(signingKeys.getSigningKeyId()))
+                .andExpect(jsonPath("$.keys[0].d").doesNotExist())
+                .andExpect(jsonPath("$.keys[1].kty").value("RSA"))
+                .andExpect(jsonPath("$.keys[1].d").doesNotExist());
+    }
+
+    @Test
+    public void tokenShouldBeSignedWithFirstKeyAndAccepted() throws Exception{
+        String accessToken = tokenUtil.obtainAccessToken(mockMvc, "maria@gmail.com", "123456");
+
+        SignedJWT jwt = SignedJWT.parse(accessToken);
+        Assertions.assertEquals("ES256", jwt.getHeader().getAlgorithm().getName());
+        Assertions.assertEquals(signingKeys.getSigningKeyId(), jwt.getHeader().getKeyID());
+
+        mockMvc.perform(get("/users/me")
+                        .header("Authorization", "Bearer " + accessToken)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.email").value("maria@gmail.com"));
+    }
+
+    @Test
+    public void repeatedRequestsShouldReuseVerifiedToken() throws Exception{
+        String accessToken = tokenUtil.obtainAccessToken(mockMvc, "alex@gmail.com", "123456");
+        double hitsBefore = jwtCacheHits();
+
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(get("/users/me")
+                            .header("Authorization", "Bearer " + accessToken)
+                            .accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.email").value("alex@gmail.com"));
+        }
+
+        Assertions.assertEquals(2, jwtCacheHits() - hitsBefore);
+        mockMvc.perform(get("/users/me")
+                        .header("Authorization", "Bearer " + accessToken + "x")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isUnauthorized());
+    }
+
+    private double jwtCacheHits() {
+        return meterRegistry.get("cache.gets").tag("cache", "jwtAuthentications").tag("result", "hit")
+                .functionCounter().count();
+    }
+}
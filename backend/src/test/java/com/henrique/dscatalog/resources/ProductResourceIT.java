@@ -1,23 +1,44 @@
 package com.henrique.dscatalog.resources;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.henrique.dscatalog.dto.CategoryDTO;
 import com.henrique.dscatalog.dto.ProductDTO;
+import com.henrique.dscatalog.services.CategoryService;
+import com.henrique.dscatalog.services.ProductImportService;
+import com.henrique.dscatalog.services.ProductService;
+import com.henrique.dscatalog.services.ProductStreamService;
 import com.henrique.dscatalog.tests.Factory;
 import com.henrique.dscatalog.tests.TokenUtil;
+import jakarta.persistence.EntityManagerFactory;
+import org.hamcrest.Matchers;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -30,6 +51,18 @@ public class ProductResourceIT {
     private ObjectMapper objectMapper;
     @Autowired
     private TokenUtil tokenUtil;
+    @Autowired
+    private ProductStreamService productStreamService;
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private ProductImportService productImportService;
+    @Autowired
+    private CategoryService categoryService;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Value("${product-stream.chunk-size}")
+    private Integer chunkSize;
 
     private Long existingId;
     private Long nonExistingId;
@@ -61,6 +94,412 @@ public class ProductResourceIT {
         result.andExpect(jsonPath("$.content[2].name").value("PC Gamer Alfa"));
     }
 
+    @Test
+    public void findAllShouldReturnSliceWithoutTotalWhenCountNone() throws Exception{
+        mockMvc.perform(get("/products?page=2&size=12&sort=name,asc&count=none")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(1))
+                .andExpect(jsonPath("$.hasNext").value(false))
+                .andExpect(jsonPath("$.totalElements").doesNotExist());
+
+        mockMvc.perform(get("/products?page=0&size=12&sort=name,asc&count=none")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].name").value("Macbook Pro"))
+                .andExpect(jsonPath("$.hasNext").value(true));
+    }
+
+    @Test
+    public void findAllShouldReturnTotalWhenCountCached() throws Exception{
+        mockMvc.perform(get("/products?page=0&size=12&count=cached")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(countTotalProducts));
+    }
+
+    @Test
+    public void findAllFacetedShouldReturnPageAndCategoryCountsForNameFilter() throws Exception{
+        mockMvc.perform(get("/products/faceted?name=gamer&categoryId=3&size=5")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.page.totalElements").value(21))
+                .andExpect(jsonPath("$.page.content.length()").value(5))
+                .andExpect(jsonPath("$.facets.length()").value(3))
+                .andExpect(jsonPath("$.facets[0].name").value("Computadores"))
+                .andExpect(jsonPath("$.facets[0].productCount").value(21))
+                .andExpect(jsonPath("$.facets[1].productCount").value(0))
+                .andExpect(jsonPath("$.facets[2].productCount").value(0));
+    }
+
+    @Test
+    public void findAllByCursorShouldSeekForwardAndBackWhenSortByName() throws Exception{
+        String body = mockMvc.perform(get("/products/scroll?size=3&sort=name,asc")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].name").value("Macbook Pro"))
+                .andExpect(jsonPath("$.content[2].name").value("PC Gamer Alfa"))
+                .andExpect(jsonPath("$.previous").doesNotExist())
+                .andReturn().getResponse().getContentAsString();
+        String next = objectMapper.readTree(body).get("next").asText();
+
+        body = mockMvc.perform(get("/products/scroll?size=3&after={after}", next)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].name").value("PC Gamer Boo"))
+                .andExpect(jsonPath("$.content[0].categories[0].id").value(3L))
+                .andReturn().getResponse().getContentAsString();
+        String previous = objectMapper.readTree(body).get("previous").asText();
+
+        mockMvc.perform(get("/products/scroll?size=3&before={before}", previous)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].name").value("Macbook Pro"))
+                .andExpect(jsonPath("$.content[2].name").value("PC Gamer Alfa"))
+                .andExpect(jsonPath("$.previous").doesNotExist());
+    }
+
+    @Test
+    public void findAllByCursorShouldReturnBadRequestWhenInvalidCursor() throws Exception{
+        mockMvc.perform(get("/products/scroll?after=invalid")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void findByIdShouldReturnNotModifiedWhenEtagMatches() throws Exception{
+        String etag = mockMvc.perform(get("/products/{id}", existingId)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(existingId))
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/products/{id}", existingId)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+    }
+
+    @Test
+    public void findByIdShouldReturnNotFoundWhenNonExistingIdAndEtagSent() throws Exception{
+        mockMvc.perform(get("/products/{id}", nonExistingId)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"product-1000-0\"")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+    }
+
+    // The catalog version is bumped as the write commits, so these run outside the test transaction
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void findAllAndFindByIdShouldReturnBodyWhenProductUpdatedAfterEtag() throws Exception{
+        ProductDTO original = productService.findById(existingId);
+        String listEtag = mockMvc.perform(get("/products?page=0&size=12"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String productEtag = mockMvc.perform(get("/products/{id}", existingId))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/products?page=0&size=12")
+                        .header(HttpHeaders.IF_NONE_MATCH, listEtag))
+                .andExpect(status().isNotModified());
+
+        try {
+            mockMvc.perform(put("/products/{id}", existingId)
+                            .content(objectMapper.writeValueAsString(Factory.createProductDTO()))
+                            .header(HttpHeaders.AUTHORIZATION, "Bearer " + bearerToken)
+                            .contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk());
+
+            mockMvc.perform(get("/products?page=0&size=12")
+                            .header(HttpHeaders.IF_NONE_MATCH, listEtag))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.ETAG, Matchers.not(listEtag)));
+            mockMvc.perform(get("/products/{id}", existingId)
+                            .header(HttpHeaders.IF_NONE_MATCH, productEtag))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.ETAG, Matchers.not(productEtag)));
+        }
+        finally {
+            productService.update(existingId, original);
+        }
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void findByIdShouldReturnBodyWhenCategoryRenamedAfterEtag() throws Exception{
+        // Contexts share the second-level cache regions but each recreates the schema,
+        // so a category version cached by an earlier context would be stale here
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        CategoryDTO category = productService.findById(existingId).getCategories().get(0);
+        String productEtag = mockMvc.perform(get("/products/{id}", existingId))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        try {
+            categoryService.update(category.getId(), new CategoryDTO(category.getId(), "Literatura"));
+
+            mockMvc.perform(get("/products/{id}", existingId)
+                            .header(HttpHeaders.IF_NONE_MATCH, productEtag))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.ETAG, Matchers.not(productEtag)))
+                    .andExpect(jsonPath("$.categories[0].name").value("Literatura"));
+        }
+        finally {
+            categoryService.update(category.getId(), category);
+        }
+    }
+
+    @Test
+    public void saveAllShouldPersistValidItemsAndReportErrorsPerItem() throws Exception{
+        ProductDTO newProduct = Factory.createProductDTO();
+        newProduct.setId(null);
+        ProductDTO invalidProduct = Factory.createProductDTO();
+        invalidProduct.setId(null);
+        invalidProduct.setName("");
+        ProductDTO existingProduct = Factory.createProductDTO();
+        existingProduct.setId(existingId);
+        ProductDTO missingProduct = Factory.createProductDTO();
+        missingProduct.setId(nonExistingId);
+        ProductDTO unknownCategoryProduct = Factory.createProductDTO();
+        unknownCategoryProduct.setId(null);
+        unknownCategoryProduct.getCategories().get(0).setId(1000L);
+
+        String jsonBody = objectMapper.writeValueAsString(
+                List.of(newProduct, invalidProduct, existingProduct, missingProduct, unknownCategoryProduct));
+
+        mockMvc.perform(post("/products/batch")
+                        .content(jsonBody)
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + bearerToken)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.inserted").value(1))
+                .andExpect(jsonPath("$.updated").value(1))
+                .andExpect(jsonPath("$.failed").value(3))
+                .andExpect(jsonPath("$.errors[0].index").value(1))
+                .andExpect(jsonPath("$.errors[1].index").value(3))
+                .andExpect(jsonPath("$.errors[1].errors[0].fieldName").value("id"))
+                .andExpect(jsonPath("$.errors[2].index").value(4))
+                .andExpect(jsonPath("$.errors[2].errors[0].fieldName").value("categories"));
+
+        mockMvc.perform(get("/products?page=0&size=12"))
+                .andExpect(jsonPath("$.totalElements").value(countTotalProducts + 1));
+    }
+
+    @Test
+    public void saveAllShouldReturnUnauthorizedWhenNoToken() throws Exception{
+        mockMvc.perform(post("/products/batch")
+                        .content("[]")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    public void streamShouldWriteEveryMatchingProductInIdOrderAcrossChunksWithoutToken() throws Exception{
+        // 25 products over chunks of 10 exercises the keyset hand-off and the short last chunk
+        ReflectionTestUtils.setField(productStreamService, "chunkSize", 10);
+        String body;
+        try {
+            MvcResult asyncResult = mockMvc.perform(get("/products/stream"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            body = mockMvc.perform(asyncDispatch(asyncResult))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                    .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+        }
+        finally {
+            ReflectionTestUtils.setField(productStreamService, "chunkSize", chunkSize);
+        }
+
+        String[] lines = body.split("\n");
+        Assertions.assertEquals(countTotalProducts, lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            ProductDTO dto = objectMapper.readValue(lines[i], ProductDTO.class);
+            Assertions.assertEquals(i + 1L, dto.getId());
+            Assertions.assertFalse(dto.getCategories().isEmpty());
+        }
+    }
+
+    @Test
+    public void streamShouldFilterByNameAndCategory() throws Exception{
+        MvcResult asyncResult = mockMvc.perform(get("/products/stream?name=pc gamer&categoryId=3"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        List<ProductDTO> products = body.lines().map(line -> {
+            try {
+                return objectMapper.readValue(line, ProductDTO.class);
+            }
+            catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }).toList();
+        Assertions.assertFalse(products.isEmpty());
+        products.forEach(dto -> {
+            Assertions.assertTrue(dto.getName().toLowerCase().contains("pc gamer"));
+            Assertions.assertTrue(dto.getCategories().stream().anyMatch(c -> c.getId() == 3L));
+        });
+    }
+
+    @Test
+    public void exportShouldStreamOneJsonLinePerProductWhenNdjson() throws Exception{
+        MvcResult asyncResult = mockMvc.perform(get("/products/export")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + bearerToken))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        String[] lines = body.split("\n");
+        Assertions.assertEquals(countTotalProducts, lines.length);
+        ProductDTO first = objectMapper.readValue(lines[0], ProductDTO.class);
+        Assertions.assertEquals(1L, first.getId());
+        Assertions.assertEquals("The Lord of the Rings", first.getName());
+        Assertions.assertFalse(first.getCategories().isEmpty());
+    }
+
+    @Test
+    public void exportShouldStreamHeaderAndQuotedRowsWhenCsv() throws Exception{
+        MvcResult asyncResult = mockMvc.perform(get("/products/export?format=CSV")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + bearerToken))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        String[] lines = body.split("\n");
+        Assertions.assertEquals(countTotalProducts + 1, lines.length);
+        Assertions.assertEquals("id,name,description,price,imgUrl,date,categories", lines[0]);
+        Assertions.assertTrue(lines[1].startsWith("1,The Lord of the Rings,\"Lorem ipsum"));
+    }
+
+    @Test
+    public void exportShouldReturnUnauthorizedWhenNoToken() throws Exception{
+        mockMvc.perform(get("/products/export"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    public void importShouldPersistNdjsonRowsAndReportMalformedLines() throws Exception{
+        ProductDTO newProduct = Factory.createProductDTO();
+        newProduct.setId(null);
+        String body = objectMapper.writeValueAsString(newProduct) + "\n"
+                + "{not json\n"
+                + "\n"
+                + objectMapper.writeValueAsString(newProduct) + "\n";
+
+        mockMvc.perform(post("/products/import")
+                        .content(body)
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + bearerToken)
+                        .contentType("application/x-ndjson"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.inserted").value(2))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.processed").value(3))
+                .andExpect(jsonPath("$.errors[0].index").value(1))
+                .andExpect(jsonPath("$.rowsPerSecond").exists());
+    }
+
+    @Test
+    public void importShouldKeepOnlyMaxErrorsWhenEveryRowIsMalformed() throws Exception{
+        ReflectionTestUtils.setField(productImportService, "maxErrors", 2);
+        try {
+            mockMvc.perform(post("/products/import")
+                            .content("{not json\n".repeat(5))
+                            .header(HttpHeaders.AUTHORIZATION, "Bearer " + bearerToken)
+                            .contentType("application/x-ndjson"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.failed").value(5))
+                    .andExpect(jsonPath("$.errors.length()").value(2))
+                    .andExpect(jsonPath("$.droppedErrors").value(3));
+        }
+        finally {
+            ReflectionTestUtils.setField(productImportService, "maxErrors", 1000);
+        }
+    }
+
+    @Test
+    public void importShouldResolveCategoryNamesAndIdsWhenCsv() throws Exception{
+        String body = """
+                id,name,description,price,imgUrl,date,categories
+                ,Imported Phone,"Good phone, with ""quotes""
+                and two lines",800.0,,2020-07-14T10:00:00Z,Livros|3
+                ,Bad Price,Description,abc,,,1
+                ,Unknown Category,Description,10.0,,,Games
+                1,Updated Book,Description,90.5,,,2
+                """;
+
+        mockMvc.perform(post("/products/import?format=CSV")
+                        .content(body)
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + bearerToken)
+                        .contentType("text/csv"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.inserted").value(1))
+                .andExpect(jsonPath("$.updated").value(1))
+                .andExpect(jsonPath("$.failed").value(2))
+                .andExpect(jsonPath("$.errors[0].index").value(1))
+                .andExpect(jsonPath("$.errors[0].errors[0].fieldName").value("price"))
+                .andExpect(jsonPath("$.errors[1].index").value(2))
+                .andExpect(jsonPath("$.errors[1].errors[0].message").value("Category not found Games"));
+
+        mockMvc.perform(get("/products?name=Imported Phone"))
+                .andExpect(jsonPath("$.content[0].description").value("Good phone, with \"quotes\"\nand two lines"))
+                .andExpect(jsonPath("$.content[0].categories.length()").value(2));
+    }
+
+    @Test
+    public void importShouldReportOversizedNdjsonLineAndContinue() throws Exception{
+        ProductDTO newProduct = Factory.createProductDTO();
+        newProduct.setId(null);
+        String body = "{\"name\":\"" + "x".repeat(70_000) + "\"}\n"
+                + objectMapper.writeValueAsString(newProduct) + "\r\n";
+
+        mockMvc.perform(post("/products/import")
+                        .content(body)
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + bearerToken)
+                        .contentType("application/x-ndjson"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.inserted").value(1))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.errors[0].index").value(0))
+                .andExpect(jsonPath("$.errors[0].errors[0].message").value("Record exceeds 65536 characters"));
+    }
+
+    @Test
+    public void importShouldStopWithPartialResultWhenCsvQuoteIsUnterminated() throws Exception{
+        String body = """
+                id,name,description,price,imgUrl,date,categories
+                ,Imported Phone,Description,800.0,,,2
+                ,Broken Quote,"Description,10.0,,,2
+                ,Never Read,Description,10.0,,,2
+                """;
+
+        mockMvc.perform(post("/products/import?format=CSV")
+                        .content(body)
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + bearerToken)
+                        .contentType("text/csv"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.inserted").value(1))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.errors[0].index").value(1))
+                .andExpect(jsonPath("$.errors[0].errors[0].message").value("Unterminated quoted field, import stopped"));
+    }
+
     @Test
     public void updateShouldReturnProductDtoWhenIdExists() throws  Exception{
         ProductDTO productDTO = Factory.createProductDTO();
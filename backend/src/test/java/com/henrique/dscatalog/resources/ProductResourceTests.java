@@ -2,7 +2,11 @@ package com.henrique.dscatalog.resources;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.henrique.dscatalog.dto.ProductDTO;
+import com.henrique.dscatalog.dto.VersionDTO;
+import com.henrique.dscatalog.services.ProductExportService;
+import com.henrique.dscatalog.services.ProductImportService;
 import com.henrique.dscatalog.services.ProductService;
+import com.henrique.dscatalog.services.ProductStreamService;
 import com.henrique.dscatalog.services.exceptions.DatabaseException;
 import com.henrique.dscatalog.services.exceptions.ResourceNotFoundException;
 import com.henrique.dscatalog.tests.Factory;
@@ -33,6 +37,12 @@ public class ProductResourceTests {
 
     @MockBean
     private ProductService productService;
+    @MockBean
+    private ProductExportService productExportService;
+    @MockBean
+    private ProductImportService productImportService;
+    @MockBean
+    private ProductStreamService productStreamService;
 
     private PageImpl<ProductDTO> page;
     private ProductDTO productDTO;
@@ -49,8 +59,12 @@ public class ProductResourceTests {
         productDTO = Factory.createProductDTO();
         page = new PageImpl<>(List.of(productDTO));
 
-        Mockito.when(productService.findAllPaged(ArgumentMatchers.any())).thenReturn(page);
+        Mockito.when(productService.findAllPaged(ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any())).thenReturn(page);
+
+        Mockito.when(productService.findCatalogVersion()).thenReturn(new VersionDTO("\"catalog-0\"", -1));
 
+        Mockito.when(productService.findVersion(existingId)).thenReturn(new VersionDTO("\"product-1-0\"", -1));
+        Mockito.when(productService.findVersion(nonExistingId)).thenThrow(ResourceNotFoundException.class);
         Mockito.when(productService.findById(existingId)).thenReturn(productDTO);
         Mockito.when(productService.findById(nonExistingId)).thenThrow(ResourceNotFoundException.class);
 
@@ -0,0 +1,103 @@
+package com.henrique.dscatalog.resources;
+
+import com.henrique.dscatalog.services.ProductExportService;
+import com.henrique.dscatalog.services.ProductStreamService;
+import com.henrique.dscatalog.tests.TokenUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+// A real server: MockMvc cannot observe a download rejected before its task started
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "streaming.threads=1",
+        "streaming.export-threads=1",
+        "streaming.export-queue-capacity=0"
+})
+@AutoConfigureMockMvc
+public class StreamingExecutorIT {
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private TokenUtil tokenUtil;
+    @MockBean
+    private ProductStreamService productStreamService;
+    @MockBean
+    private ProductExportService productExportService;
+
+    @Test
+    public void streamShouldReturnServiceUnavailableWhenStreamingPoolIsFull() throws Exception{
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.doAnswer(invocation -> {
+            started.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return null;
+        }).when(productStreamService).stream(ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any());
+
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/products/stream")).build();
+
+        CompletableFuture<HttpResponse<String>> running = client.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+        try {
+            Assertions.assertTrue(started.await(10, TimeUnit.SECONDS));
+
+            HttpResponse<String> rejected = client.send(request, HttpResponse.BodyHandlers.ofString());
+            Assertions.assertEquals(503, rejected.statusCode());
+            Assertions.assertTrue(rejected.body().contains("\"status\":503"));
+        }
+        finally {
+            release.countDown();
+        }
+
+        Assertions.assertEquals(200, running.get(10, TimeUnit.SECONDS).statusCode());
+    }
+
+    @Test
+    public void exportShouldReturnServiceUnavailableWhenExportPoolIsFullWithoutBlockingStream() throws Exception{
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.doAnswer(invocation -> {
+            started.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return null;
+        }).when(productExportService).export(ArgumentMatchers.any(), ArgumentMatchers.any());
+
+        String bearerToken = tokenUtil.obtainAccessToken(mockMvc, "maria@gmail.com", "123456");
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest export = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/products/export"))
+                .header("Authorization", "Bearer " + bearerToken)
+                .build();
+        HttpRequest stream = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/products/stream")).build();
+
+        CompletableFuture<HttpResponse<String>> running = client.sendAsync(export, HttpResponse.BodyHandlers.ofString());
+        try {
+            Assertions.assertTrue(started.await(10, TimeUnit.SECONDS));
+
+            HttpResponse<String> rejected = client.send(export, HttpResponse.BodyHandlers.ofString());
+            Assertions.assertEquals(503, rejected.statusCode());
+            Assertions.assertEquals(200, client.send(stream, HttpResponse.BodyHandlers.ofString()).statusCode());
+        }
+        finally {
+            release.countDown();
+        }
+
+        Assertions.assertEquals(200, running.get(10, TimeUnit.SECONDS).statusCode());
+    }
+}
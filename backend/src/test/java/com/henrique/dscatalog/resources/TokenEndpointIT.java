@@ -0,0 +1,150 @@
+package com.henrique.dscatalog.resources;
+
+import com.henrique.dscatalog.config.customgrant.CachingJdbcOAuth2AuthorizationService;
+import com.henrique.dscatalog.repositories.UserRepository;
+import com.henrique.dscatalog.services.UserService;
+import com.henrique.dscatalog.tests.TokenUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.server.authorization.JdbcOAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.time.Instant;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Own database and no scheduled flush or sweep, so only this class touches oauth2_authorization
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:token-endpoint-it",
+        "scheduling.enabled=false",
+        "login-attempts.max-failures-per-username=2",
+        "login-attempts.max-per-ip=20",
+        "login-attempts.window-seconds=60"
+})
+@AutoConfigureMockMvc
+public class TokenEndpointIT {
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private TokenUtil tokenUtil;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private CachingJdbcOAuth2AuthorizationService authorizationService;
+    @Autowired
+    private RegisteredClientRepository registeredClientRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Value("${security.client-id}")
+    private String clientId;
+    @Value("${security.client-secret}")
+    private String clientSecret;
+
+    @Test
+    public void tokenShouldReturnTooManyRequestsWhenUsernameExceedsFailureLimit() throws Exception{
+        String username = "alex@gmail.com";
+
+        requestToken(username, "wrong").andExpect(status().isBadRequest());
+        requestToken(username, "wrong").andExpect(status().isBadRequest());
+
+        requestToken(username, "123456")
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "60"))
+                .andExpect(jsonPath("$.error").value("too_many_attempts"));
+    }
+
+    @Test
+    public void tokenShouldPersistAuthorizationSharedThroughDatabase() throws Exception{
+        String accessToken = tokenUtil.obtainAccessToken(mockMvc, "alex@gmail.com", "123456");
+        authorizationService.flush();
+
+        OAuth2Authorization authorization = new JdbcOAuth2AuthorizationService(jdbcTemplate, registeredClientRepository)
+                .findByToken(accessToken, OAuth2TokenType.ACCESS_TOKEN);
+
+        Assertions.assertNotNull(authorization);
+        Assertions.assertEquals("alex@gmail.com", authorization.getPrincipalName());
+    }
+
+    @Test
+    public void purgeExpiredShouldDeleteAuthorizationsWhoseTokensExpired() {
+        Instant issuedAt = Instant.now().minusSeconds(120);
+        OAuth2Authorization expired = OAuth2Authorization
+                .withRegisteredClient(registeredClientRepository.findByClientId(clientId))
+                .principalName("alex@gmail.com")
+                .authorizationGrantType(new AuthorizationGrantType("password"))
+                .accessToken(new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "expired-token",
+                        issuedAt, issuedAt.plusSeconds(60)))
+                .build();
+        OAuth2Authorization live = OAuth2Authorization
+                .withRegisteredClient(registeredClientRepository.findByClientId(clientId))
+                .principalName("alex@gmail.com")
+                .authorizationGrantType(new AuthorizationGrantType("password"))
+                .accessToken(new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "live-token",
+                        issuedAt, Instant.now().plusSeconds(3600)))
+                .build();
+        authorizationService.save(expired);
+        authorizationService.save(live);
+        authorizationService.flush();
+
+        JdbcOAuth2AuthorizationService stored = new JdbcOAuth2AuthorizationService(jdbcTemplate, registeredClientRepository);
+        Assertions.assertNotNull(stored.findById(expired.getId()));
+        Assertions.assertEquals(1, authorizationService.purgeExpired());
+        Assertions.assertNull(stored.findById(expired.getId()));
+        Assertions.assertNotNull(stored.findById(live.getId()));
+    }
+
+    @Test
+    public void tokenShouldUpgradeLegacyPasswordHashWhenLoginSucceeds() throws Exception{
+        String username = "maria@gmail.com";
+        userService.updatePassword(userService.loadUserByUsername(username), new BCryptPasswordEncoder(4).encode("123456"));
+
+        tokenUtil.obtainAccessToken(mockMvc, username, "123456");
+
+        String upgraded = userRepository.findByEmail(username).getPassword();
+        Assertions.assertTrue(upgraded.startsWith("{bcrypt}"));
+        Assertions.assertFalse(passwordEncoder.upgradeEncoding(upgraded));
+        tokenUtil.obtainAccessToken(mockMvc, username, "123456");
+    }
+
+    @Test
+    public void tokenShouldResetFailuresWhenLoginSucceeds() throws Exception{
+        String username = "maria@gmail.com";
+
+        requestToken(username, "wrong").andExpect(status().isBadRequest());
+        tokenUtil.obtainAccessToken(mockMvc, username, "123456");
+        requestToken(username, "wrong").andExpect(status().isBadRequest());
+
+        tokenUtil.obtainAccessToken(mockMvc, username, "123456");
+    }
+
+    private ResultActions requestToken(String username, String password) throws Exception{
+        return mockMvc.perform(post("/oauth2/token")
+                .param("grant_type", "password")
+                .param("username", username)
+                .param("password", password)
+                .with(httpBasic(clientId, clientSecret)));
+    }
+}
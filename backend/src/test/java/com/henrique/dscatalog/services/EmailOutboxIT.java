@@ -0,0 +1,100 @@
+package com.henrique.dscatalog.services;
+
+import com.henrique.dscatalog.dto.EmailDTO;
+import com.henrique.dscatalog.entities.EmailOutbox;
+import com.henrique.dscatalog.repositories.EmailOutboxRepository;
+import com.henrique.dscatalog.repositories.PasswordRecoverRepository;
+import com.icegreen.greenmail.configuration.GreenMailConfiguration;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.GreenMailUtil;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Instant;
+import java.util.List;
+
+// Own database: pollers of other cached contexts would otherwise dispatch the rows this test checks
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:email-outbox-it",
+        "scheduling.enabled=false",
+        "spring.mail.host=localhost",
+        "spring.mail.port=3025",
+        "spring.mail.properties.mail.smtp.auth=false",
+        "spring.mail.properties.mail.smtp.starttls.enable=false"
+})
+public class EmailOutboxIT {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP)
+            .withConfiguration(GreenMailConfiguration.aConfig().withDisabledAuthentication());
+
+    @Autowired
+    private AuthService authService;
+    @Autowired
+    private EmailOutboxService emailOutboxService;
+    @Autowired
+    private EmailOutboxDispatcher emailOutboxDispatcher;
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+    @Autowired
+    private PasswordRecoverRepository passwordRecoverRepository;
+
+    @AfterEach
+    void tearDown() {
+        emailOutboxRepository.deleteAll();
+        passwordRecoverRepository.deleteAll();
+    }
+
+    @Test
+    public void createRecoverTokenShouldQueueEmailAndDispatcherShouldSendIt() throws Exception{
+        authService.createRecoverToken(new EmailDTO("maria@gmail.com"));
+
+        Assertions.assertEquals(0, greenMail.getReceivedMessages().length);
+        Assertions.assertEquals(1, emailOutboxRepository.count());
+
+        emailOutboxDispatcher.dispatch();
+
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        Assertions.assertEquals(1, received.length);
+        Assertions.assertEquals("maria@gmail.com", received[0].getAllRecipients()[0].toString());
+        String token = passwordRecoverRepository.findAll().get(0).getToken();
+        Assertions.assertTrue(GreenMailUtil.getBody(received[0]).contains(token));
+        Assertions.assertNotNull(emailOutboxRepository.findAll().get(0).getSentAt());
+    }
+
+    @Test
+    public void dispatchShouldSendWholeBatchAndNotResendSentEmails() {
+        for (int i = 0; i < 3; i++) {
+            emailOutboxService.enqueue("user" + i + "@gmail.com", "Subject", "Body " + i);
+        }
+
+        emailOutboxDispatcher.dispatch();
+        emailOutboxDispatcher.dispatch();
+
+        Assertions.assertEquals(3, greenMail.getReceivedMessages().length);
+    }
+
+    @Test
+    public void dispatchShouldBackOffWhenSmtpServerIsDown() {
+        greenMail.stop();
+        emailOutboxService.enqueue("maria@gmail.com", "Subject", "Body");
+
+        emailOutboxDispatcher.dispatch();
+
+        List<EmailOutbox> emails = emailOutboxRepository.findAll();
+        Assertions.assertNull(emails.get(0).getSentAt());
+        Assertions.assertEquals(1, emails.get(0).getAttempts());
+        Assertions.assertNotNull(emails.get(0).getLastError());
+        Assertions.assertTrue(emails.get(0).getNextAttemptAt().isAfter(Instant.now()));
+
+        // Not due yet, so a second pass must leave it alone
+        emailOutboxDispatcher.dispatch();
+        Assertions.assertEquals(1, emailOutboxRepository.findAll().get(0).getAttempts());
+    }
+}
@@ -0,0 +1,141 @@
+package com.henrique.dscatalog.services;
+
+import com.henrique.dscatalog.dto.FacetedPageDTO;
+import com.henrique.dscatalog.dto.ProductDTO;
+import com.henrique.dscatalog.projections.CategoryFacetProjection;
+import com.henrique.dscatalog.repositories.CatalogVersionRepository;
+import com.henrique.dscatalog.repositories.CategoryRepository;
+import com.henrique.dscatalog.repositories.ProductRepository;
+import com.henrique.dscatalog.services.events.ProductChangedEvent;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.List;
+
+@SpringBootTest(properties = "product-search.engine=memory")
+public class ProductSearchIndexIT {
+
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private ProductSearchIndex searchIndex;
+    @Autowired
+    private ProductRepository productRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private CatalogVersionRepository catalogVersionRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void findAllPagedShouldReturnSortedPageWhenSortByName(){
+        Page<ProductDTO> result = productService.findAllPaged("", "0", PageRequest.of(0, 10, Sort.by("name")));
+
+        Assertions.assertEquals(25L, result.getTotalElements());
+        Assertions.assertEquals("Macbook Pro", result.getContent().get(0).getName());
+        Assertions.assertEquals("PC Gamer", result.getContent().get(1).getName());
+        Assertions.assertEquals("PC Gamer Alfa", result.getContent().get(2).getName());
+        Assertions.assertFalse(result.getContent().get(0).getCategories().isEmpty());
+    }
+
+    @Test
+    public void findAllPagedShouldMatchDatabaseWhenFilteredByNameAndCategory(){
+        Page<ProductDTO> result = productService.findAllPaged("gAmEr", "1,3", PageRequest.of(0, 5));
+
+        Assertions.assertEquals(productRepository.countProducts(List.of(1L, 3L), "gAmEr"), result.getTotalElements());
+        Assertions.assertEquals(5, result.getContent().size());
+    }
+
+    @Test
+    public void findAllFacetedShouldMatchDatabaseCounts(){
+        FacetedPageDTO<ProductDTO> result = productService.findAllFaceted("o", "0", PageRequest.of(0, 5));
+        List<CategoryFacetProjection> expected = categoryRepository.searchCategoryFacets("o");
+
+        Assertions.assertEquals(expected.size(), result.getFacets().size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assertions.assertEquals(expected.get(i).getId(), result.getFacets().get(i).getId());
+            Assertions.assertEquals(expected.get(i).getProductCount(), result.getFacets().get(i).getProductCount());
+        }
+    }
+
+    @Test
+    public void searchShouldFollowIncrementalChanges(){
+        try {
+            searchIndex.onProductChanged(new ProductChangedEvent(1L, null));
+
+            Page<ProductDTO> result = productService.findAllPaged("lord", "0", PageRequest.of(0, 10));
+            Assertions.assertTrue(result.isEmpty());
+        }
+        finally {
+            searchIndex.rebuild();
+        }
+
+        Page<ProductDTO> result = productService.findAllPaged("lord", "0", PageRequest.of(0, 10));
+        Assertions.assertEquals(1L, result.getTotalElements());
+    }
+
+    @Test
+    public void refreshShouldPickUpWritesCommittedElsewhereOnceCatalogVersionMoves(){
+        // Simulates another node: the row changes without an event reaching this index
+        jdbcTemplate.update("UPDATE tb_product SET name = 'Zyxel Router' WHERE id = 1");
+        try {
+            searchIndex.refresh();
+            Assertions.assertTrue(productService.findAllPaged("zyxel", "0", PageRequest.of(0, 10)).isEmpty());
+
+            catalogVersionRepository.increment(Instant.now());
+            searchIndex.refresh();
+            Assertions.assertEquals(1L, productService.findAllPaged("zyxel", "0", PageRequest.of(0, 10)).getTotalElements());
+        }
+        finally {
+            jdbcTemplate.update("UPDATE tb_product SET name = 'The Lord of the Rings' WHERE id = 1");
+            searchIndex.rebuild();
+        }
+    }
+
+    @Test
+    public void refreshShouldNotRebuildForWritesAlreadyAppliedOnThisNode(){
+        searchIndex.refresh();
+        ProductDTO product = productService.findById(2L);
+        String name = product.getName();
+        product.setName("Zyxel Switch");
+        productService.update(2L, product);
+        // Only a rebuild would see this, since it moves no version
+        jdbcTemplate.update("UPDATE tb_product SET name = 'Zyxel Router' WHERE id = 3");
+        try {
+            searchIndex.refresh();
+
+            Page<ProductDTO> result = productService.findAllPaged("zyxel", "0", PageRequest.of(0, 10));
+            Assertions.assertEquals(List.of(2L), result.getContent().stream().map(ProductDTO::getId).toList());
+        }
+        finally {
+            product.setName(name);
+            productService.update(2L, product);
+            jdbcTemplate.update("UPDATE tb_product SET name = 'Macbook Pro' WHERE id = 3");
+            searchIndex.rebuild();
+        }
+    }
+
+    @Test
+    public void findAllPagedShouldUseDatabaseUntilIndexIsBuilt(){
+        ReflectionTestUtils.setField(productService, "searchIndex", new ProductSearchIndex());
+        try {
+            FacetedPageDTO<ProductDTO> result = productService.findAllFaceted("", "0", PageRequest.of(0, 10, Sort.by("name")));
+
+            Assertions.assertEquals(25L, result.getPage().getTotalElements());
+            Assertions.assertEquals("Macbook Pro", result.getPage().getContent().get(0).getName());
+            Assertions.assertFalse(result.getFacets().isEmpty());
+        }
+        finally {
+            ReflectionTestUtils.setField(productService, "searchIndex", searchIndex);
+        }
+    }
+}
@@ -1,18 +1,30 @@
 package com.henrique.dscatalog.services;
 
+import com.henrique.dscatalog.config.CacheConfig;
+import com.henrique.dscatalog.dto.BatchResultDTO;
+import com.henrique.dscatalog.dto.CategoryDTO;
 import com.henrique.dscatalog.dto.ProductDTO;
+import com.henrique.dscatalog.repositories.CatalogVersionRepository;
 import com.henrique.dscatalog.repositories.ProductRepository;
 import com.henrique.dscatalog.services.exceptions.ResourceNotFoundException;
+import com.henrique.dscatalog.tests.Factory;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.SimpleKey;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+
 @SpringBootTest
 @Transactional
 public class ProductServiceIT {
@@ -21,6 +33,14 @@ public class ProductServiceIT {
     private ProductService productService;
     @Autowired
     private ProductRepository productRepository;
+    @Autowired
+    private CatalogVersionRepository catalogVersionRepository;
+    @Autowired
+    private CategoryService categoryService;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private CacheManager cacheManager;
 
     private Long existingId;
     private Long nonExistingId;
@@ -52,7 +72,7 @@ public class ProductServiceIT {
     public void findAllPagedShouldReturnPageWhenPage0Size10(){
         PageRequest pageRequest = PageRequest.of(0, 10);
 
-        Page<ProductDTO> result = productService.findAllPaged(pageRequest);
+        Page<ProductDTO> result = productService.findAllPaged("", "0", pageRequest);
 
         Assertions.assertFalse(result.isEmpty());
         Assertions.assertEquals(0, result.getNumber());
@@ -64,7 +84,7 @@ public class ProductServiceIT {
     public void findAllPagedShouldReturnEmptyPageWhenPageDoesNotExists(){
         PageRequest pageRequest = PageRequest.of(50, 10);
 
-        Page<ProductDTO> result = productService.findAllPaged(pageRequest);
+        Page<ProductDTO> result = productService.findAllPaged("", "0", pageRequest);
 
         Assertions.assertTrue(result.isEmpty());
     }
@@ -73,11 +93,134 @@ public class ProductServiceIT {
     public void findAllPagedShouldReturnSortedPageWhenSortByName(){
         PageRequest pageRequest = PageRequest.of(0, 10, Sort.by("name"));
 
-        Page<ProductDTO> result = productService.findAllPaged(pageRequest);
+        Page<ProductDTO> result = productService.findAllPaged("", "0", pageRequest);
 
         Assertions.assertFalse(result.isEmpty());
         Assertions.assertEquals("Macbook Pro", result.getContent().get(0).getName());
         Assertions.assertEquals("PC Gamer", result.getContent().get(1).getName());
         Assertions.assertEquals("PC Gamer Alfa", result.getContent().get(2).getName());
     }
+
+    @Test
+    public void findAllPagedShouldReturnProductsWithCategoriesWhenFilteredByCategory(){
+        PageRequest pageRequest = PageRequest.of(0, 10, Sort.by("name"));
+
+        Page<ProductDTO> result = productService.findAllPaged("", "2", pageRequest);
+
+        Assertions.assertEquals(2, result.getTotalElements());
+        Assertions.assertEquals("Rails for Dummies", result.getContent().get(0).getName());
+        Assertions.assertEquals(2L, result.getContent().get(0).getCategories().get(0).getId());
+        Assertions.assertEquals("Livros", result.getContent().get(0).getCategories().get(0).getName());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void findByIdShouldServeFromCacheUntilProductIsUpdated(){
+        ProductDTO original = productService.findById(existingId);
+        Assertions.assertNotNull(cacheManager.getCache(CacheConfig.PRODUCTS).get(existingId));
+        ProductDTO cached = productService.findById(existingId);
+        Assertions.assertEquals(original, cached);
+        Assertions.assertEquals(original.getName(), cached.getName());
+
+        try {
+            ProductDTO changed = new ProductDTO(original.getId(), "The Hobbit", original.getDescription(),
+                    original.getPrice(), original.getImgUrl(), original.getDate());
+            changed.getCategories().addAll(original.getCategories());
+            productService.update(existingId, changed);
+
+            Assertions.assertNull(cacheManager.getCache(CacheConfig.PRODUCTS).get(existingId));
+            Assertions.assertEquals("The Hobbit", productService.findById(existingId).getName());
+        }
+        finally {
+            productService.update(existingId, original);
+        }
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void findByIdShouldNotShareCachedInstanceBetweenCallers(){
+        ProductDTO first = productService.findById(existingId);
+        first.setName("Changed by caller");
+        first.getCategories().clear();
+
+        ProductDTO second = productService.findById(existingId);
+        Assertions.assertEquals("The Lord of the Rings", second.getName());
+        Assertions.assertFalse(second.getCategories().isEmpty());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void findByIdShouldReloadCategoryNamesOnceCategoryIsRenamed(){
+        // Contexts share the second-level cache regions but each recreates the schema,
+        // so a category version cached by an earlier context would be stale here
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        ProductDTO original = productService.findById(existingId);
+        CategoryDTO category = original.getCategories().get(0);
+
+        try {
+            categoryService.update(category.getId(), new CategoryDTO(category.getId(), "Literatura"));
+
+            Assertions.assertNull(cacheManager.getCache(CacheConfig.PRODUCTS).get(existingId));
+            Assertions.assertEquals("Literatura", productService.findById(existingId).getCategories().get(0).getName());
+        }
+        finally {
+            categoryService.update(category.getId(), category);
+        }
+    }
+
+    @Test
+    public void findAllPagedShouldNotUseCachedCountWhenPageIsPastTheEnd(){
+        PageRequest pastTheEnd = PageRequest.of(50, 10);
+        cacheManager.getCache(CacheConfig.PRODUCT_COUNTS).put(new SimpleKey(List.of(), ""), 999L);
+        try {
+            Assertions.assertEquals(999L, productService.findAllPagedWithCachedCount("", "0", pastTheEnd).getTotalElements());
+
+            Page<ProductDTO> result = productService.findAllPaged("", "0", pastTheEnd);
+
+            Assertions.assertTrue(result.isEmpty());
+            Assertions.assertEquals(countTotalProducts, result.getTotalElements());
+        }
+        finally {
+            cacheManager.getCache(CacheConfig.PRODUCT_COUNTS).clear();
+        }
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void cachedCountShouldBeRecountedOnceInsertAndDeleteCommit(){
+        PageRequest pageRequest = PageRequest.of(0, 10);
+        long before = productService.findAllPagedWithCachedCount("", "0", pageRequest).getTotalElements();
+
+        ProductDTO dto = Factory.createProductDTO();
+        dto.setId(null);
+        ProductDTO inserted = productService.insert(dto);
+        try {
+            Assertions.assertEquals(before + 1, productService.findAllPagedWithCachedCount("", "0", pageRequest).getTotalElements());
+        }
+        finally {
+            productService.deleteById(inserted.getId());
+        }
+        Assertions.assertEquals(before, productService.findAllPagedWithCachedCount("", "0", pageRequest).getTotalElements());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void saveAllShouldBumpCatalogVersionOncePerChunk(){
+        long before = catalogVersionRepository.findCurrent().orElseThrow().getVersion();
+        ProductDTO first = Factory.createProductDTO();
+        first.setId(null);
+        ProductDTO second = Factory.createProductDTO();
+        second.setId(null);
+
+        BatchResultDTO result = productService.saveAll(List.of(first, second));
+        try {
+            Assertions.assertEquals(2, result.getInserted());
+            Assertions.assertEquals(before + 1, catalogVersionRepository.findCurrent().orElseThrow().getVersion());
+        }
+        finally {
+            productRepository.findAll().stream()
+                    .filter(p -> p.getId() > countTotalProducts)
+                    .forEach(p -> productService.deleteById(p.getId()));
+        }
+    }
 }
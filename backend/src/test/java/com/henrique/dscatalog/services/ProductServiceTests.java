@@ -1,7 +1,10 @@
 package com.henrique.dscatalog.services;
 
+import com.henrique.dscatalog.dto.BatchItemErrorDTO;
+import com.henrique.dscatalog.dto.BatchResultDTO;
 import com.henrique.dscatalog.dto.ProductDTO;
 import com.henrique.dscatalog.entities.Product;
+import com.henrique.dscatalog.repositories.CatalogVersionRepository;
 import com.henrique.dscatalog.repositories.CategoryRepository;
 import com.henrique.dscatalog.repositories.ProductRepository;
 import com.henrique.dscatalog.services.exceptions.DatabaseException;
@@ -16,11 +19,14 @@ import org.mockito.ArgumentMatchers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.CannotAcquireLockException;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import java.util.List;
@@ -41,6 +47,14 @@ public class ProductServiceTests {
     private ProductRepository productRepository;
     @Mock
     private CategoryRepository categoryRepository;
+    @Mock
+    private CatalogVersionRepository catalogVersionRepository;
+    @Mock
+    private CatalogVersionTracker catalogVersionTracker;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private ProductBatchWriter batchWriter;
 
     @BeforeEach
     void setUp() throws Exception {
@@ -50,7 +64,7 @@ public class ProductServiceTests {
         product = Factory.createProduct();
         page = new PageImpl<>(List.of(product));
 
-        Mockito.when(productRepository.findAll((Pageable) ArgumentMatchers.any())).thenReturn(page);
+        Mockito.when(productRepository.searchProductsPage(ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any())).thenReturn(List.of());
 
         Mockito.when(productRepository.getReferenceById(existingId)).thenReturn(product);
         Mockito.when(productRepository.getReferenceById(nonExistingId)).thenThrow(EntityNotFoundException.class);
@@ -74,10 +88,10 @@ public class ProductServiceTests {
     public void findAllPagedShouldReturnPage(){
         Pageable pageable = PageRequest.of(0, 10);
 
-        Page<ProductDTO> result = productService.findAllPaged(pageable);
+        Page<ProductDTO> result = productService.findAllPaged("", "0", pageable);
 
         Assertions.assertNotNull(result);
-        Mockito.verify(productRepository).findAll(pageable);
+        Mockito.verify(productRepository).searchProductsPage(List.of(), "", pageable);
     }
 
     @Test
@@ -138,4 +152,35 @@ public class ProductServiceTests {
         Mockito.verify(productRepository, Mockito.times(1)).existsById(existingId);
         Mockito.verify(productRepository, Mockito.times(1)).deleteById(existingId);
     }
+
+    @Test
+    public void saveChunkShouldRetryItemByItemWhenOptimisticLockFails(){
+        List<ProductDTO> chunk = List.of(Factory.createProductDTO(), Factory.createProductDTO());
+        BatchResultDTO saved = new BatchResultDTO();
+        saved.addUpdated();
+        Mockito.when(batchWriter.write(ArgumentMatchers.anyList(), ArgumentMatchers.eq(0)))
+                .thenThrow(ObjectOptimisticLockingFailureException.class)
+                .thenReturn(saved);
+        Mockito.doThrow(ObjectOptimisticLockingFailureException.class)
+                .when(batchWriter).write(ArgumentMatchers.anyList(), ArgumentMatchers.eq(1));
+
+        BatchResultDTO result = productService.saveChunk(chunk, 0);
+
+        Assertions.assertEquals(1, result.getUpdated());
+        Assertions.assertEquals(1, result.getFailed());
+        Assertions.assertEquals(1, result.getErrors().get(0).getIndex());
+    }
+
+    @Test
+    public void saveChunkShouldReportEveryItemWhenChunkFailsForOtherReasons(){
+        List<ProductDTO> chunk = List.of(Factory.createProductDTO(), Factory.createProductDTO());
+        Mockito.when(batchWriter.write(ArgumentMatchers.anyList(), ArgumentMatchers.anyInt()))
+                .thenThrow(CannotAcquireLockException.class);
+
+        BatchResultDTO result = productService.saveChunk(chunk, 500);
+
+        Assertions.assertEquals(2, result.getFailed());
+        Assertions.assertEquals(List.of(500, 501), result.getErrors().stream().map(BatchItemErrorDTO::getIndex).toList());
+        Mockito.verify(batchWriter, Mockito.times(1)).write(ArgumentMatchers.anyList(), ArgumentMatchers.anyInt());
+    }
 }
@@ -0,0 +1,87 @@
+package com.henrique.dscatalog.services;
+
+import com.henrique.dscatalog.config.CacheConfig;
+import com.henrique.dscatalog.dto.NewPasswordDTO;
+import com.henrique.dscatalog.entities.PasswordRecover;
+import com.henrique.dscatalog.entities.User;
+import com.henrique.dscatalog.repositories.PasswordRecoverRepository;
+import com.henrique.dscatalog.repositories.UserRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Instant;
+
+@SpringBootTest
+public class UserServiceIT {
+
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private AuthService authService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PasswordRecoverRepository passwordRecoverRepository;
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    @Autowired
+    private CacheManager cacheManager;
+
+    private String existingEmail;
+    private Cache cache;
+
+    @BeforeEach
+    void setUp() throws Exception{
+        existingEmail = "maria@gmail.com";
+        cache = cacheManager.getCache(CacheConfig.USER_DETAILS);
+        cache.clear();
+    }
+
+    @Test
+    public void loadUserByUsernameShouldCacheUserAndRoles() {
+        UserDetails first = userService.loadUserByUsername(existingEmail);
+        Assertions.assertNotNull(cache.get(existingEmail));
+
+        UserDetails second = userService.loadUserByUsername(existingEmail);
+        Assertions.assertEquals(first.getPassword(), second.getPassword());
+        Assertions.assertEquals(2, second.getAuthorities().size());
+    }
+
+    @Test
+    public void loadUserByUsernameShouldNotCacheUnknownEmail() {
+        Assertions.assertThrows(UsernameNotFoundException.class,
+                () -> userService.loadUserByUsername("nobody@gmail.com"));
+        Assertions.assertNull(cache.get("nobody@gmail.com"));
+    }
+
+    @Test
+    public void saveNewPasswordShouldEvictCachedUser() {
+        String originalPassword = userService.loadUserByUsername(existingEmail).getPassword();
+        Assertions.assertNotNull(cache.get(existingEmail));
+
+        PasswordRecover recover = new PasswordRecover(null, "token-user-cache", existingEmail, Instant.now().plusSeconds(60));
+        passwordRecoverRepository.save(recover);
+        try {
+            authService.saveNewPassword(new NewPasswordDTO("token-user-cache", "newPassword123"));
+
+            Assertions.assertNull(cache.get(existingEmail));
+            UserDetails reloaded = userService.loadUserByUsername(existingEmail);
+            Assertions.assertTrue(passwordEncoder.matches("newPassword123", reloaded.getPassword()));
+        }
+        finally {
+            User user = userRepository.findByEmail(existingEmail);
+            user.setPassword(originalPassword);
+            userRepository.save(user);
+            passwordRecoverRepository.deleteAll();
+            cache.clear();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.henrique.dscatalog.util;
+
+import com.henrique.dscatalog.entities.Product;
+import com.henrique.dscatalog.tests.Factory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class UtilsTests {
+
+    @Test
+    public void orderByIdsShouldFollowIdOrderAndSkipMissingIds() {
+        Product first = Factory.createProduct();
+        first.setId(1L);
+        Product third = Factory.createProduct();
+        third.setId(3L);
+
+        List<Product> result = Utils.orderByIds(List.of(3L, 2L, 1L), List.of(first, third));
+
+        Assertions.assertEquals(List.of(3L, 1L), result.stream().map(Product::getId).toList());
+    }
+}